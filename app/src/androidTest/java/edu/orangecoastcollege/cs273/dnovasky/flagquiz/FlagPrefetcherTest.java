@@ -0,0 +1,75 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+
+/**
+ * Tests that a restored question's flag comes from FlagBitmapCache, at the size it was cached
+ * for or, after a rotation, at the old size until the new one is decoded.
+ */
+public class FlagPrefetcherTest extends InstrumentationTestCase {
+    private FlagCatalog catalog;
+    private FlagBitmapCache cache;
+    private FlagPrefetcher prefetcher;
+    private String fileName;
+    private Bitmap cached;
+
+    // Keeps the bitmaps delivered to it, in order.
+    private static final class Delivery implements FlagPrefetcher.Callback {
+        final Bitmap[] bitmaps = new Bitmap[2];
+        int count;
+
+        @Override
+        public void onFlagDecoded(int flagId, Bitmap bitmap) {
+            bitmaps[count++] = bitmap;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Context context = getInstrumentation().getTargetContext();
+        catalog = FlagCatalogLoader.get(context);
+        cache = FlagBitmapCache.get(context);
+        prefetcher = new FlagPrefetcher(context, catalog, cache);
+
+        // The flag shown before the activity was recreated, at the portrait view size.
+        fileName = catalog.getFileName(0);
+        cached = Bitmap.createBitmap(400, 240, Bitmap.Config.RGB_565);
+        cache.put(fileName, 400, 240, cached);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        prefetcher.shutdown();
+        super.tearDown();
+    }
+
+    @UiThreadTest
+    public void testRequest_restoresTheFlagFromTheCache() throws Exception {
+        int hits = cache.getHitCount();
+        prefetcher.setTargetSize(400, 240);
+        Delivery delivery = new Delivery();
+        prefetcher.request(0, delivery);
+
+        assertEquals(1, delivery.count);
+        assertSame(cached, delivery.bitmaps[0]);
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+
+    @UiThreadTest
+    public void testRequest_showsTheCachedSizeAtOnceAfterARotation() throws Exception {
+        prefetcher.setTargetSize(720, 200); // The landscape view size, not cached yet.
+        Delivery delivery = new Delivery();
+        prefetcher.request(0, delivery);
+
+        // The old size is shown without waiting; the new size follows from the background.
+        assertEquals(1, delivery.count);
+        assertSame(cached, delivery.bitmaps[0]);
+        assertSame(cached, cache.getAnySize(fileName));
+    }
+}
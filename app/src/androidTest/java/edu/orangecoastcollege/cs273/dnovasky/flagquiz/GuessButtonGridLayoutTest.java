@@ -0,0 +1,112 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.view.LayoutInflater;
+import android.widget.FrameLayout;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+
+/**
+ * Tests that binding a new question to fragment_quiz.xml's flag and guess buttons runs at most
+ * one layout pass of the screen.
+ */
+public class GuessButtonGridLayoutTest extends InstrumentationTestCase {
+    private static final int CHOICES = 8; // Answer choices per question.
+    private static final int QUESTIONS = 10; // Questions bound per test.
+    private static final int SCREEN_WIDTH = 1080; // Width of the simulated screen.
+    private static final int SCREEN_HEIGHT = 1920; // Height of the simulated screen.
+
+    private FlagCatalog catalog;
+    private CountingLayout root;
+    private FlagImageView flagImageView;
+    private GuessButtonGrid guessButtonGrid;
+
+    // Stands in for the window's root view, counting the layouts that reach it.
+    private static final class CountingLayout extends FrameLayout {
+        int layoutRequests; // Calls of requestLayout() since the last reset.
+        int layoutPasses; // Calls of onLayout() since the last reset.
+
+        CountingLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            ++layoutRequests;
+            super.requestLayout();
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            ++layoutPasses;
+            super.onLayout(changed, left, top, right, bottom);
+        }
+
+        // Runs a frame's measure and layout, as the view root would if a layout was requested.
+        void frame() {
+            if (isLayoutRequested()) {
+                measure(MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, MeasureSpec.EXACTLY),
+                        MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, MeasureSpec.EXACTLY));
+                layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+            }
+        }
+
+        void reset() {
+            layoutRequests = 0;
+            layoutPasses = 0;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Context context = getInstrumentation().getTargetContext();
+        catalog = FlagCatalogLoader.get(context);
+        root = new CountingLayout(context);
+        LayoutInflater.from(context).inflate(R.layout.fragment_quiz, root, true);
+        flagImageView = (FlagImageView) root.findViewById(R.id.flagImageView);
+        guessButtonGrid = (GuessButtonGrid) root.findViewById(R.id.guessButtonGrid);
+
+        guessButtonGrid.setChoiceCount(CHOICES);
+        root.frame();
+    }
+
+    @UiThreadTest
+    public void testBindingAQuestion_runsASingleLayoutPass() throws Exception {
+        for (int question = 0; question < QUESTIONS; question++) {
+            root.reset();
+            bindQuestion(question);
+            root.frame();
+
+            assertTrue("layout requests for question " + question, root.layoutRequests <= 1);
+            assertTrue("layout passes for question " + question, root.layoutPasses <= 1);
+        }
+    }
+
+    @UiThreadTest
+    public void testBindingTheSameQuestion_runsNoLayoutPass() throws Exception {
+        bindQuestion(0);
+        root.frame();
+
+        root.reset();
+        bindQuestion(0);
+        root.frame();
+        assertEquals(0, root.layoutRequests);
+        assertEquals(0, root.layoutPasses);
+    }
+
+    // Shows a flag and its answer choices the way QuizActivityFragment.showQuestion() does.
+    private void bindQuestion(int question) {
+        // Every question's flag has its own size, as the decoded flags do.
+        Bitmap flag = Bitmap.createBitmap(300 + question, 200 - question,
+                Bitmap.Config.RGB_565);
+        flagImageView.setImageBitmap(flag);
+        for (int choice = 0; choice < CHOICES; choice++) {
+            int flagId = (question * CHOICES + choice) % catalog.getFlagCount();
+            guessButtonGrid.bindChoice(choice, flagId, catalog.getName(flagId), true);
+        }
+    }
+}
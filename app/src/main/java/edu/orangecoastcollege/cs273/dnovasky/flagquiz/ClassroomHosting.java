@@ -0,0 +1,83 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Collections;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom.ClassroomHost;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom.ClassroomProtocol;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * ClassroomHosting runs at most one ClassroomHost per process, so a classroom quiz keeps
+ * running while the activity is recreated. The host plays the app's own FlagCatalog, the
+ * one instance FlagCatalogLoader hands out, so hosting decodes no flags of its own.
+ */
+public final class ClassroomHosting {
+    // String used when logging error messages
+    private static final String TAG = "FlagQuiz Classroom";
+
+    private static ClassroomHost host; // The running host, or null.
+
+    private ClassroomHosting() {
+    }
+
+    public static synchronized boolean isHosting() {
+        return host != null;
+    }
+
+    /**
+     * Starts hosting a new classroom quiz on ClassroomProtocol.DEFAULT_PORT. Call it off the
+     * main thread; it may load the catalog and opens a socket.
+     * @param context any context of the app
+     * @param choiceCount the number of answer choices per question
+     * @throws IOException if the port can't be opened
+     */
+    public static synchronized void start(Context context, int choiceCount) throws IOException {
+        if (host != null)
+            return;
+        ClassroomHost newHost = new ClassroomHost(FlagCatalogLoader.get(context),
+                Runtime.getRuntime().availableProcessors());
+        newHost.setChoiceCount(choiceCount);
+        newHost.setSeed(new XoroshiroRandom().nextLong()); // A new quiz for every class.
+        newHost.start(ClassroomProtocol.DEFAULT_PORT, null);
+        host = newHost;
+    }
+
+    /**
+     * Stops hosting and disconnects every player.
+     */
+    public static synchronized void stop() {
+        if (host != null) {
+            host.close();
+            host = null;
+        }
+    }
+
+    /**
+     * @return the device's address on the local network for players to connect to, or null
+     *         if it has none
+     */
+    public static String findLocalAddress() {
+        try {
+            for (NetworkInterface network :
+                    Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!network.isUp() || network.isLoopback())
+                    continue;
+                for (InetAddress address : Collections.list(network.getInetAddresses()))
+                    if (address instanceof Inet4Address && address.isSiteLocalAddress())
+                        return address.getHostAddress();
+            }
+        }
+        catch (SocketException e) {
+            Log.w(TAG, "Error listing the network interfaces", e);
+        }
+        return null;
+    }
+}
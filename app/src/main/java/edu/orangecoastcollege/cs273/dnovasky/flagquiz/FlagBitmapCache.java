@@ -0,0 +1,179 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FlagBitmapCache keeps recently decoded flags in memory, keyed by flag file name and the
+ * size they were decoded for, so replays and repeated quizzes don't decode the same PNG again
+ * and a flag decoded for one view size isn't kept in place of another. Until the exact size is
+ * decoded, e.g. after a rotation, getAnySize() offers whichever size was cached last. The
+ * cache is limited by the bytes its bitmaps use rather than by the number of flags, and is
+ * shared by the whole process.
+ *
+ * It releases some or all of its bitmaps when the system asks the app to trim memory.
+ */
+public class FlagBitmapCache implements ComponentCallbacks2 {
+    // String used when logging messages
+    private static final String TAG = "FlagQuiz Cache";
+
+    // Fraction of the app's memory class the cache may use (1/8).
+    private static final int MEMORY_CLASS_DIVISOR = 8;
+
+    private static FlagBitmapCache instance; // The process-wide cache, created on first use.
+
+    private final LruCache<String, Bitmap> cache; // Flags by key(), sized in bytes.
+    // Keys in the cache, to check for a flag without touching the cache's statistics.
+    private final Set<String> keys = Collections.synchronizedSet(new HashSet<String>());
+    // The flag of each file name cached last, of any size; always also in the cache.
+    private final Map<String, Bitmap> latest = new HashMap<>();
+
+    private FlagBitmapCache(int maxBytes) {
+        cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                if (newValue != null)
+                    return;
+                keys.remove(key);
+                String fileName = key.substring(0, key.lastIndexOf('@'));
+                synchronized (latest) {
+                    if (latest.get(fileName) == oldValue)
+                        latest.remove(fileName);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the process-wide cache, creating it the first time and registering it for
+     * memory trim callbacks.
+     * @param context any context of the app
+     * @return the flag bitmap cache
+     */
+    public static synchronized FlagBitmapCache get(Context context) {
+        if (instance == null) {
+            ActivityManager activityManager =
+                    (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            int maxBytes = activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CLASS_DIVISOR;
+
+            instance = new FlagBitmapCache(maxBytes);
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * @param fileName the flag file name (e.g. Europe-France)
+     * @param targetWidth the display width the flag was decoded for, or 0 for full size
+     * @param targetHeight the display height the flag was decoded for, or 0 for full size
+     * @return the cached flag, or null if it isn't cached for that size
+     */
+    public Bitmap get(String fileName, int targetWidth, int targetHeight) {
+        return cache.get(key(fileName, targetWidth, targetHeight));
+    }
+
+    /**
+     * Checks for a flag without counting a hit or miss or refreshing its place in the cache,
+     * for callers that only decide whether to decode it.
+     * @param fileName the flag file name (e.g. Europe-France)
+     * @param targetWidth the display width the flag was decoded for, or 0 for full size
+     * @param targetHeight the display height the flag was decoded for, or 0 for full size
+     * @return true if the flag is cached for that size
+     */
+    public boolean contains(String fileName, int targetWidth, int targetHeight) {
+        return keys.contains(key(fileName, targetWidth, targetHeight));
+    }
+
+    /**
+     * Returns the size of a flag cached last, without counting a hit or miss, to show while
+     * the size that was asked for is decoded.
+     * @param fileName the flag file name (e.g. Europe-France)
+     * @return the flag decoded for some size, or null if no size of it is cached
+     */
+    public Bitmap getAnySize(String fileName) {
+        synchronized (latest) {
+            return latest.get(fileName);
+        }
+    }
+
+    /**
+     * Adds a decoded flag to the cache, evicting the least recently used flags if needed.
+     * @param fileName the flag file name (e.g. Europe-France)
+     * @param targetWidth the display width the flag was decoded for, or 0 for full size
+     * @param targetHeight the display height the flag was decoded for, or 0 for full size
+     * @param bitmap the decoded flag
+     */
+    public void put(String fileName, int targetWidth, int targetHeight, Bitmap bitmap) {
+        String key = key(fileName, targetWidth, targetHeight);
+        keys.add(key);
+        synchronized (latest) {
+            latest.put(fileName, bitmap);
+        }
+        cache.put(key, bitmap);
+    }
+
+    // The target size picks the pack variant or sample size, so it is part of the key.
+    private static String key(String fileName, int targetWidth, int targetHeight) {
+        return fileName + '@' + Math.max(targetWidth, 0) + 'x' + Math.max(targetHeight, 0);
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    public int getEvictionCount() {
+        return cache.evictionCount();
+    }
+
+    public int getSizeBytes() {
+        return cache.size();
+    }
+
+    public int getMaxSizeBytes() {
+        return cache.maxSize();
+    }
+
+    /**
+     * Releases cached flags when memory is needed. In the background everything goes;
+     * while running, the cache is cut to half its size as memory gets low.
+     * @param level the trim level
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        Log.d(TAG, "onTrimMemory(" + level + ") " + cache);
+        if (level >= TRIM_MEMORY_BACKGROUND)
+            cache.evictAll();
+        else if (level >= TRIM_MEMORY_RUNNING_LOW)
+            cache.trimToSize(cache.maxSize() / 2);
+    }
+
+    @Override
+    public void onLowMemory() {
+        cache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration configuration) {
+    }
+}
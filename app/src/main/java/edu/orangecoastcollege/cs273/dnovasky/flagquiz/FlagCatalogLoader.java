@@ -0,0 +1,129 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.CountryNameIndex;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagNeighbors;
+
+/**
+ * FlagCatalogLoader loads the FlagCatalog (and the FlagNeighbors of hard mode and the
+ * CountryNameIndex of typed answers) once per process and hands out the same instance to
+ * every caller, so the quiz never has to list the asset folders again.
+ */
+public final class FlagCatalogLoader {
+    // String used when logging error messages
+    private static final String TAG = "FlagQuiz Catalog";
+
+    private static FlagCatalog catalog; // The process-wide catalog, loaded on first use.
+    private static FlagNeighbors neighbors; // The look-alike table, loaded on first use.
+    private static boolean neighborsLoaded; // Whether loading the look-alike table was tried.
+    private static CountryNameIndex nameIndex; // The typed answer index, built on first use.
+
+    private FlagCatalogLoader() {
+    }
+
+    /**
+     * Returns the flag catalog, reading it from the generated flags.idx asset the first time.
+     * If the index is missing the region asset folders are listed instead.
+     * @param context any context of the app
+     * @return the flag catalog
+     */
+    public static synchronized FlagCatalog get(Context context) {
+        if (catalog == null)
+            catalog = load(context);
+        return catalog;
+    }
+
+    /**
+     * Returns the look-alike table, reading it from the generated flags.knn asset the first
+     * time.
+     * @param context any context of the app
+     * @return the look-alike table, or null if it is missing or doesn't match the catalog
+     */
+    public static synchronized FlagNeighbors getNeighbors(Context context) {
+        if (!neighborsLoaded) {
+            neighbors = loadNeighbors(context, get(context));
+            neighborsLoaded = true;
+        }
+        return neighbors;
+    }
+
+    /**
+     * Returns the index of the country names and their alternate names (see
+     * alternate_names.xml), building it the first time.
+     * @param context any context of the app
+     * @return the name index, which only the main thread may use since it isn't thread-safe
+     */
+    public static synchronized CountryNameIndex getNameIndex(Context context) {
+        if (nameIndex == null) {
+            FlagCatalog catalog = get(context);
+            String[][] alternateNames = new String[catalog.getFlagCount()][];
+            for (String item : context.getResources().getStringArray(R.array.alternate_names)) {
+                String[] names = item.split("\\|");
+                int id = indexOfFileName(catalog, names[0]);
+                if (id >= 0)
+                    alternateNames[id] = Arrays.copyOfRange(names, 1, names.length);
+                else
+                    Log.w(TAG, "No flag " + names[0] + " for its alternate names");
+            }
+            nameIndex = CountryNameIndex.build(catalog, alternateNames);
+        }
+        return nameIndex;
+    }
+
+    private static int indexOfFileName(FlagCatalog catalog, String fileName) {
+        for (int id = 0; id < catalog.getFlagCount(); id++)
+            if (catalog.getFileName(id).equals(fileName))
+                return id;
+        return -1;
+    }
+
+    private static FlagNeighbors loadNeighbors(Context context, FlagCatalog catalog) {
+        try (InputStream stream = new BufferedInputStream(
+                context.getAssets().open(FlagNeighbors.NEIGHBORS_FILE))) {
+            FlagNeighbors neighbors = FlagNeighbors.read(stream);
+            if (neighbors.getFlagCount() == catalog.getFlagCount())
+                return neighbors;
+            Log.w(TAG, FlagNeighbors.NEIGHBORS_FILE + " doesn't match the catalog");
+        }
+        catch (IOException e) {
+            Log.w(TAG, "Error reading " + FlagNeighbors.NEIGHBORS_FILE +
+                    ", hard mode draws wrong answers uniformly", e);
+        }
+        return null;
+    }
+
+    private static FlagCatalog load(Context context) {
+        AssetManager assets = context.getAssets();
+
+        try (InputStream stream =
+                new BufferedInputStream(assets.open(FlagCatalog.INDEX_FILE))) {
+            return FlagCatalog.read(stream);
+        }
+        catch (IOException e) {
+            Log.w(TAG, "Error reading " + FlagCatalog.INDEX_FILE + ", listing assets instead", e);
+        }
+
+        // Fall back to listing each region's folder.
+        String[] regions = context.getResources().getStringArray(R.array.regions_list);
+        String[][] regionFiles = new String[regions.length][];
+        for (int region = 0; region < regions.length; region++) {
+            try {
+                regionFiles[region] = assets.list(regions[region]);
+            }
+            catch (IOException e) {
+                Log.e(TAG, "Error loading image file names of " + regions[region], e);
+                regionFiles[region] = new String[0];
+            }
+        }
+        return FlagCatalog.fromFileNames(regions, regionFiles);
+    }
+}
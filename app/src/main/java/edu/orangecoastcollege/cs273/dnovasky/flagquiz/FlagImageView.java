@@ -0,0 +1,58 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+/**
+ * FlagImageView displays the quiz's flag. Its size comes from the layout (see
+ * fragment_quiz.xml), never from the flag, so changing the flag only needs a redraw. A plain
+ * ImageView requests a layout of the whole screen whenever the new image has a different
+ * size, which nearly every flag has.
+ */
+public class FlagImageView extends ImageView {
+    private boolean settingImage; // Whether a new image is being set.
+
+    public FlagImageView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    @Override
+    public void setImageDrawable(Drawable drawable) {
+        // setImageBitmap() also ends up here.
+        settingImage = true;
+        try {
+            super.setImageDrawable(drawable);
+        }
+        finally {
+            settingImage = false;
+        }
+    }
+
+    @Override
+    public void setImageResource(int resId) {
+        settingImage = true;
+        try {
+            super.setImageResource(resId);
+        }
+        finally {
+            settingImage = false;
+        }
+    }
+
+    @Override
+    public void requestLayout() {
+        if (!settingImage || !hasFixedSize())
+            super.requestLayout();
+    }
+
+    // Whether the layout alone determines the view's size.
+    private boolean hasFixedSize() {
+        ViewGroup.LayoutParams params = getLayoutParams();
+        return params != null && !getAdjustViewBounds() &&
+                params.width != ViewGroup.LayoutParams.WRAP_CONTENT &&
+                params.height != ViewGroup.LayoutParams.WRAP_CONTENT;
+    }
+}
@@ -0,0 +1,201 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * FlagPack reads flag images from flags.pack, the single uncompressed asset the build packs
+ * every flag into (see app/flags.gradle). The pack is memory-mapped once per process and
+ * each flag is decoded straight from its slice of the mapping, without opening an asset
+ * stream per flag.
+ *
+ * The pack holds each flag pre-scaled to a few widths, and decode() picks the narrowest
+ * variant that still fills the flag view. Opaque flags are stored as deflated RGB 565
+ * pixels, which are inflated straight into an RGB_565 bitmap instead of being decoded as a
+ * PNG; flags with transparency are stored as PNG.
+ *
+ * Neither BitmapFactory (before API 28) nor Inflater (before Java 11) reads a ByteBuffer, so
+ * the slice is copied once into a reused buffer and decoded from there.
+ */
+public class FlagPack {
+    // String used when logging error messages
+    private static final String TAG = "FlagQuiz Pack";
+
+    // Name of the generated pack in the assets folder.
+    public static final String PACK_FILE = "flags.pack";
+
+    private static final int MAGIC = 0x464C4750; // "FLGP"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 11; // Bytes before the variant table.
+    private static final int ENTRY_SIZE = 13; // Bytes per variant in the table.
+
+    // Variant formats.
+    private static final int FORMAT_PNG = 0;
+    private static final int FORMAT_RGB565_DEFLATE = 1; // Little-endian pixels in rows.
+
+    private static FlagPack instance; // The process-wide pack, or null if there is none.
+    private static boolean opened; // Whether opening the pack has been tried.
+
+    private final ByteBuffer pack; // The memory-mapped pack.
+    private final int flagCount; // Number of flags in the pack.
+    private final int variantCount; // Variants per flag, narrowest first.
+    // Per variant, at flag id * variantCount + variant:
+    private final byte[] formats; // FORMAT_PNG or FORMAT_RGB565_DEFLATE.
+    private final short[] widths; // Width in pixels.
+    private final short[] heights; // Height in pixels.
+    private final int[] offsets; // Offset of the variant's data in the pack.
+    private final int[] lengths; // Length of the variant's data.
+    private final byte[] scratch; // Holds the variant being decoded; as large as the largest.
+    private final byte[] pixels; // Holds inflated RGB 565 pixels; as large as the largest.
+    private final Inflater inflater = new Inflater(); // Reused for every RGB 565 variant.
+
+    private FlagPack(ByteBuffer pack) throws IOException {
+        this.pack = pack;
+        if (pack.getInt(0) != MAGIC || pack.getShort(4) != VERSION)
+            throw new IOException("Not a version " + VERSION + " flag pack");
+
+        flagCount = pack.getInt(6);
+        variantCount = pack.get(10);
+        int entries = flagCount * variantCount;
+        if (variantCount < 1)
+            throw new IOException("The pack has no flag variants");
+        formats = new byte[entries];
+        widths = new short[entries];
+        heights = new short[entries];
+        offsets = new int[entries];
+        lengths = new int[entries];
+
+        int maxLength = 0;
+        int maxPixelBytes = 0;
+        for (int entry = 0; entry < entries; entry++) {
+            int position = HEADER_SIZE + entry * ENTRY_SIZE;
+            formats[entry] = pack.get(position);
+            widths[entry] = pack.getShort(position + 1);
+            heights[entry] = pack.getShort(position + 3);
+            offsets[entry] = pack.getInt(position + 5);
+            lengths[entry] = pack.getInt(position + 9);
+            if (offsets[entry] < 0 || lengths[entry] < 0 ||
+                    (long) offsets[entry] + lengths[entry] > pack.capacity())
+                throw new IOException("Flag " + entry / variantCount + " lies outside the pack");
+            if (formats[entry] != FORMAT_PNG && formats[entry] != FORMAT_RGB565_DEFLATE)
+                throw new IOException("Flag " + entry / variantCount + " has an unknown format");
+
+            maxLength = Math.max(maxLength, lengths[entry]);
+            if (formats[entry] == FORMAT_RGB565_DEFLATE)
+                maxPixelBytes = Math.max(maxPixelBytes, widths[entry] * heights[entry] * 2);
+        }
+        scratch = new byte[maxLength];
+        pixels = new byte[maxPixelBytes];
+    }
+
+    /**
+     * Returns the process-wide pack, mapping it the first time.
+     * @param context any context of the app
+     * @param flagCount the number of flags in the catalog, which the pack must match
+     * @return the flag pack, or null if the app has no usable pack; only builds with
+     *         BuildConfig.LOOSE_FLAGS have the loose PNG assets to use instead
+     */
+    public static synchronized FlagPack get(Context context, int flagCount) {
+        if (!opened) {
+            opened = true;
+            instance = BuildConfig.LOOSE_FLAGS ? null : open(context);
+            if (instance != null && instance.getFlagCount() != flagCount) {
+                Log.e(TAG, PACK_FILE + " has " + instance.getFlagCount() +
+                        " flags but the catalog has " + flagCount);
+                instance = null;
+            }
+        }
+        return instance;
+    }
+
+    private static FlagPack open(Context context) {
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(PACK_FILE);
+             FileInputStream stream = new FileInputStream(descriptor.getFileDescriptor());
+             FileChannel channel = stream.getChannel()) {
+            // The mapping stays valid after the channel is closed.
+            ByteBuffer pack = channel.map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getDeclaredLength());
+            return new FlagPack(pack);
+        }
+        catch (IOException e) {
+            Log.e(TAG, "Error opening " + PACK_FILE, e);
+            return null;
+        }
+    }
+
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * Decodes the narrowest variant of a flag that fills the target size when scaled to fit
+     * it (as the flag view's fitCenter does), or the widest variant if none is large enough.
+     * @param id the flag id
+     * @param targetWidth the display width in pixels, or 0 to decode at full size
+     * @param targetHeight the display height in pixels, or 0 to decode at full size
+     * @return the decoded flag, or null if it couldn't be decoded
+     */
+    public synchronized Bitmap decode(int id, int targetWidth, int targetHeight) {
+        int entry = chooseVariant(id, targetWidth, targetHeight);
+
+        long start = QuizMetrics.start();
+        ByteBuffer slice = pack.duplicate();
+        slice.position(offsets[entry]);
+        slice.get(scratch, 0, lengths[entry]);
+        QuizMetrics.end(QuizMetrics.FLAG_OPEN, start);
+
+        start = QuizMetrics.start();
+        Bitmap bitmap = formats[entry] == FORMAT_RGB565_DEFLATE ?
+                inflateRgb565(entry) : BitmapFactory.decodeByteArray(scratch, 0, lengths[entry]);
+        QuizMetrics.end(QuizMetrics.FLAG_DECODE, start);
+        return bitmap;
+    }
+
+    // Returns the table entry of the variant to decode for the target size.
+    private int chooseVariant(int id, int targetWidth, int targetHeight) {
+        int first = id * variantCount;
+        int last = first + variantCount - 1;
+        if (targetWidth <= 0 || targetHeight <= 0)
+            return last;
+
+        // The width the flag is shown at: fitCenter fills the width or the height.
+        long shownWidth = Math.min(targetWidth,
+                (long) targetHeight * widths[last] / Math.max(heights[last], 1));
+        for (int entry = first; entry < last; entry++)
+            if (widths[entry] >= shownWidth)
+                return entry;
+        return last;
+    }
+
+    // Inflates an RGB 565 variant from scratch into a new bitmap.
+    private Bitmap inflateRgb565(int entry) {
+        int byteCount = widths[entry] * heights[entry] * 2;
+        inflater.reset();
+        inflater.setInput(scratch, 0, lengths[entry]);
+        try {
+            if (inflater.inflate(pixels, 0, byteCount) != byteCount) {
+                Log.e(TAG, "Flag " + entry / variantCount + " is truncated");
+                return null;
+            }
+        }
+        catch (DataFormatException e) {
+            Log.e(TAG, "Error inflating flag " + entry / variantCount, e);
+            return null;
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(widths[entry], heights[entry],
+                Bitmap.Config.RGB_565);
+        bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(pixels, 0, byteCount));
+        return bitmap;
+    }
+}
@@ -0,0 +1,239 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+
+/**
+ * FlagPrefetcher decodes flag images on a background thread so the quiz can show the next
+ * flag without decoding a PNG on the UI thread. The quiz asks it to prefetch the upcoming
+ * flags, then requests each flag when it is needed, which is normally already decoded.
+ * Decoded flags are downsampled to the target size and kept in the FlagBitmapCache under that
+ * size, so a flag decoded before the flag view was measured isn't reused once it has been.
+ *
+ * Flags are read from the memory-mapped FlagPack, or from the loose PNG assets in builds made
+ * with -PlooseFlags (BuildConfig.LOOSE_FLAGS), which ship the PNGs instead of the pack.
+ *
+ * All public methods must be called on the main thread, and callbacks are delivered there.
+ */
+public class FlagPrefetcher {
+    // String used when logging error messages
+    private static final String TAG = "FlagQuiz Prefetcher";
+
+    /**
+     * Receives a requested flag once it has been decoded.
+     */
+    public interface Callback {
+        /**
+         * Called once with the requested flag, or twice when another size of it was cached:
+         * first with that size at once, then with the target size once it is decoded.
+         * @param flagId the flag id
+         * @param bitmap the decoded flag, or null if it couldn't be decoded
+         */
+        void onFlagDecoded(int flagId, Bitmap bitmap);
+    }
+
+    private final Context context; // Used to open the flag pack or images.
+    private final FlagCatalog catalog; // Names the flags.
+    private final ExecutorService executor; // Decodes flags one at a time in the background.
+    private final Handler mainHandler; // Delivers decoded flags to the main thread.
+
+    private final FlagBitmapCache cache; // Decoded flags.
+    private final boolean[] inFlight; // Flags queued or being decoded, by flag id.
+    private int requestedFlagId = -1; // Flag requested before it was decoded, or -1.
+    private Callback requestedCallback; // Callback waiting for requestedFlagId.
+
+    // Incremented by cancel() so work queued before it is discarded.
+    private volatile int generation;
+
+    // Size flags are displayed at; 0 until known, which decodes at full size.
+    private int targetWidth;
+    private int targetHeight;
+
+    /**
+     * Creates a prefetcher that reads flags from the app's assets.
+     * @param context any context of the app
+     * @param catalog the flag catalog
+     * @param cache the cache to keep decoded flags in
+     */
+    public FlagPrefetcher(Context context, FlagCatalog catalog, FlagBitmapCache cache) {
+        this.context = context.getApplicationContext();
+        this.catalog = catalog;
+        this.cache = cache;
+        executor = Executors.newSingleThreadExecutor();
+        mainHandler = new Handler(Looper.getMainLooper());
+        inFlight = new boolean[catalog.getFlagCount()];
+    }
+
+    /**
+     * Sets the size flags will be displayed at, so they can be decoded at a smaller size.
+     * @param width the display width in pixels, or 0 if unknown
+     * @param height the display height in pixels, or 0 if unknown
+     */
+    public void setTargetSize(int width, int height) {
+        targetWidth = width;
+        targetHeight = height;
+    }
+
+    /**
+     * Starts decoding a flag in the background unless it is already decoded or queued.
+     * @param flagId the flag id
+     */
+    public void prefetch(final int flagId) {
+        if (inFlight[flagId] ||
+                cache.contains(catalog.getFileName(flagId), targetWidth, targetHeight))
+            return;
+        inFlight[flagId] = true;
+
+        final int taskGeneration = generation;
+        final int width = targetWidth;
+        final int height = targetHeight;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (taskGeneration != generation)
+                    return; // Cancelled while queued.
+
+                final Bitmap bitmap = decode(flagId, width, height);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDecoded(taskGeneration, flagId, width, height, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Delivers a flag to the callback, immediately if it has already been decoded, otherwise
+     * as soon as its decode finishes. If the flag was only decoded for another size, e.g.
+     * before a rotation, that size is delivered immediately as well. Only the most recent
+     * request is kept.
+     * @param flagId the flag id
+     * @param callback the callback to receive the decoded flag
+     */
+    public void request(int flagId, Callback callback) {
+        String fileName = catalog.getFileName(flagId);
+        Bitmap bitmap = cache.get(fileName, targetWidth, targetHeight);
+        if (bitmap != null) {
+            requestedFlagId = -1;
+            requestedCallback = null;
+            callback.onFlagDecoded(flagId, bitmap);
+        }
+        else {
+            requestedFlagId = flagId;
+            requestedCallback = callback;
+            Bitmap otherSize = cache.getAnySize(fileName);
+            if (otherSize != null)
+                callback.onFlagDecoded(flagId, otherSize);
+            prefetch(flagId);
+        }
+    }
+
+    /**
+     * Discards every queued and requested flag, e.g. when the quiz is reset. Flags that
+     * have already been decoded stay in the cache.
+     */
+    public void cancel() {
+        ++generation;
+        Arrays.fill(inFlight, false);
+        requestedFlagId = -1;
+        requestedCallback = null;
+    }
+
+    /**
+     * Cancels all work and stops the background thread. The prefetcher can't be used after this.
+     */
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    // Called on the main thread when a background decode finishes.
+    private void onDecoded(int taskGeneration, int flagId, int width, int height,
+                           Bitmap bitmap) {
+        if (taskGeneration != generation)
+            return; // Cancelled while decoding.
+
+        inFlight[flagId] = false;
+        if (bitmap != null)
+            cache.put(catalog.getFileName(flagId), width, height, bitmap);
+
+        if (flagId == requestedFlagId) {
+            Callback callback = requestedCallback;
+            requestedFlagId = -1;
+            requestedCallback = null;
+            callback.onFlagDecoded(flagId, bitmap);
+        }
+    }
+
+    // Decodes a flag on the background thread, downsampled to the target size.
+    private Bitmap decode(int flagId, int targetWidth, int targetHeight) {
+        FlagPack pack = FlagPack.get(context, catalog.getFlagCount());
+        if (pack != null)
+            return pack.decode(flagId, targetWidth, targetHeight);
+        if (!BuildConfig.LOOSE_FLAGS)
+            return null; // The APK has no PNGs; FlagPack logged why the pack is unusable.
+
+        AssetManager assets = context.getAssets();
+        String path = catalog.getAssetPath(flagId);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+
+        try {
+            // Read just the flag's size to pick the sample size.
+            long start = QuizMetrics.start();
+            options.inJustDecodeBounds = true;
+            try (InputStream stream = assets.open(path)) {
+                BitmapFactory.decodeStream(stream, null, options);
+            }
+            options.inSampleSize = calculateSampleSize(
+                    options.outWidth, options.outHeight, targetWidth, targetHeight);
+            options.inJustDecodeBounds = false;
+            QuizMetrics.end(QuizMetrics.FLAG_OPEN, start);
+
+            start = QuizMetrics.start();
+            try (InputStream stream = assets.open(path)) {
+                Bitmap bitmap = BitmapFactory.decodeStream(stream, null, options);
+                QuizMetrics.end(QuizMetrics.FLAG_DECODE, start);
+                return bitmap;
+            }
+        }
+        catch (IOException e) {
+            Log.e(TAG, "Error loading " + path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Finds the largest power of two sample size that keeps the decoded image at least as
+     * large as the target in both dimensions.
+     * @param width the image width
+     * @param height the image height
+     * @param targetWidth the display width, or 0 if unknown
+     * @param targetHeight the display height, or 0 if unknown
+     * @return the sample size to decode with
+     */
+    static int calculateSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0)
+            return sampleSize;
+
+        while (width / (sampleSize * 2) >= targetWidth
+                && height / (sampleSize * 2) >= targetHeight)
+            sampleSize *= 2;
+        return sampleSize;
+    }
+}
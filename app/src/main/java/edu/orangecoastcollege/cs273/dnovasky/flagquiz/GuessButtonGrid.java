@@ -0,0 +1,133 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+
+import java.util.Arrays;
+
+/**
+ * GuessButtonGrid lays out the quiz's answer buttons in a single flat grid: two columns for
+ * up to 8 choices, and another column for every further 4 choices (3 for 12, 4 for 16), so
+ * the grid never grows past 4 rows.
+ *
+ * Buttons (see guess_button.xml) are inflated the first time a choice count needs them and
+ * hidden, not removed, when the count goes down. bindChoice() only touches a button whose
+ * flag or enabled state changed, and each button is measured once per pass at the exact
+ * width of its column, so a new question redraws the buttons without changing the layout.
+ */
+public class GuessButtonGrid extends ViewGroup {
+    private static final int MAX_ROWS = 4; // Rows before another column is added.
+
+    private final LayoutInflater inflater; // Inflates the guess buttons.
+    private OnClickListener guessListener; // Receives the clicks of every button.
+    private int choiceCount; // Number of visible buttons.
+    private int columns = 2; // Number of columns of the visible buttons.
+    private int rowHeight; // Height of every row, from the last measure.
+    private int[] boundFlagIds = new int[0]; // Flag id shown on each button, or -1 if none.
+
+    public GuessButtonGrid(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        inflater = LayoutInflater.from(context);
+    }
+
+    /**
+     * @param listener the listener of every guess button; each button's tag is the position
+     *                 of its answer choice
+     */
+    public void setGuessListener(OnClickListener listener) {
+        guessListener = listener;
+        for (int choice = 0; choice < getChildCount(); choice++)
+            getChildAt(choice).setOnClickListener(listener);
+    }
+
+    /**
+     * Shows count buttons, inflating any that haven't been needed before.
+     * @param count the number of answer choices
+     */
+    public void setChoiceCount(int count) {
+        if (count > getChildCount()) {
+            int previous = getChildCount();
+            boundFlagIds = Arrays.copyOf(boundFlagIds, count);
+            Arrays.fill(boundFlagIds, previous, count, -1);
+            for (int choice = previous; choice < count; choice++) {
+                Button button = (Button) inflater.inflate(R.layout.guess_button, this, false);
+                button.setTag(choice);
+                button.setOnClickListener(guessListener);
+                button.setText("");
+                button.setEnabled(false); // Until a question is bound.
+                addView(button);
+            }
+        }
+
+        for (int choice = 0; choice < getChildCount(); choice++) {
+            int visibility = choice < count ? View.VISIBLE : View.GONE;
+            if (getChildAt(choice).getVisibility() != visibility)
+                getChildAt(choice).setVisibility(visibility);
+        }
+        choiceCount = count;
+        columns = Math.max(2, (count + MAX_ROWS - 1) / MAX_ROWS);
+        requestLayout();
+    }
+
+    public int getChoiceCount() {
+        return choiceCount;
+    }
+
+    /**
+     * Shows an answer choice on its button, touching the button only if it changed.
+     * @param choice the position of the answer choice
+     * @param flagId the flag id of the answer choice
+     * @param name the country name of the answer choice
+     * @param enabled whether the button can be clicked
+     */
+    public void bindChoice(int choice, int flagId, CharSequence name, boolean enabled) {
+        Button button = (Button) getChildAt(choice);
+        if (boundFlagIds[choice] != flagId) {
+            button.setText(name);
+            boundFlagIds[choice] = flagId;
+        }
+        if (button.isEnabled() != enabled)
+            button.setEnabled(enabled);
+    }
+
+    /**
+     * Disables every visible button.
+     */
+    public void disableButtons() {
+        for (int choice = 0; choice < choiceCount; choice++)
+            getChildAt(choice).setEnabled(false);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int columnWidth = (width - getPaddingLeft() - getPaddingRight()) / columns;
+        int childWidthSpec = MeasureSpec.makeMeasureSpec(columnWidth, MeasureSpec.EXACTLY);
+        int childHeightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+
+        rowHeight = 0;
+        for (int choice = 0; choice < choiceCount; choice++) {
+            View button = getChildAt(choice);
+            button.measure(childWidthSpec, childHeightSpec);
+            rowHeight = Math.max(rowHeight, button.getMeasuredHeight());
+        }
+
+        int rows = (choiceCount + columns - 1) / columns;
+        int height = rows * rowHeight + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        int columnWidth = (right - left - getPaddingLeft() - getPaddingRight()) / columns;
+        for (int choice = 0; choice < choiceCount; choice++) {
+            int x = getPaddingLeft() + (choice % columns) * columnWidth;
+            int y = getPaddingTop() + (choice / columns) * rowHeight;
+            getChildAt(choice).layout(x, y, x + columnWidth, y + rowHeight);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.v4.app.DialogFragment;
+import android.support.v7.app.AlertDialog;
+import android.util.Log;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This is a DialogFragment used to display the QuizMetrics (debug builds only), with buttons
+ * to export them to a file or to reset them.
+ */
+public class MetricsDialogFragment extends DialogFragment {
+    // String used when logging error messages
+    private static final String TAG = "FlagQuiz Metrics";
+
+    // Create a new AlertDialog and return it.
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(Bundle bundle) {
+        AlertDialog.Builder builder =
+                new AlertDialog.Builder(getActivity());
+        builder.setTitle(R.string.metrics_title);
+        builder.setMessage(QuizMetrics.summarize());
+
+        // "Export" button
+        builder.setPositiveButton(R.string.metrics_export,
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int i) {
+                        try {
+                            File file = QuizMetrics.export(getActivity());
+                            Toast.makeText(getActivity(),
+                                    getString(R.string.metrics_exported, file.getPath()),
+                                    Toast.LENGTH_LONG).show();
+                        }
+                        catch (IOException e) {
+                            Log.e(TAG, "Error exporting metrics", e);
+                            Toast.makeText(getActivity(), R.string.metrics_export_failed,
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
+
+        // "Reset" button
+        builder.setNeutralButton(R.string.metrics_reset,
+                new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialogInterface, int i) {
+                        QuizMetrics.reset();
+                    }
+                });
+        return builder.create(); // Return the AlertDialog.
+    }
+}
@@ -1,26 +1,64 @@
 package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.ActivityInfo;
 import android.content.res.Configuration;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.Toast;
 
+import java.io.IOException;
 import java.util.Set;
 
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom.ClassroomProtocol;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizEngine;
+
 public class QuizActivity extends AppCompatActivity {
+    // String used when logging error messages
+    private static final String TAG = "FlagQuiz Quiz";
+
     // Keys for reading data from SharedPreferences
     public static final String CHOICES = "pref_numberOfChoices";
     public static final String REGIONS = "pref_regionsToInclude";
+    public static final String ADAPTIVE = "pref_adaptive";
+    public static final String HARD_MODE = "pref_hardMode";
+    public static final String TYPED_ANSWERS = "pref_typedAnswers";
+
+    // Key for saving the quiz in progress in the instance state
+    private static final String QUIZ_STATE = "quizState";
+
+    // Time to wait after a preference change for further changes before rebuilding the quiz.
+    private static final int PREFERENCES_DELAY_MILLIS = 400;
 
     private boolean phoneDevice = true; // Used to force portrait mode.
-    private boolean preferencesChanged = true; // Did preferences change?
+    private boolean preferencesChanged = false; // Are preference changes waiting to apply?
+    private boolean choicesChanged; // Did the number of choices change since the last apply?
+    private boolean regionsChanged; // Did the regions change since the last apply?
+    private boolean adaptiveChanged; // Did the adaptive setting change since the last apply?
+    private boolean hardModeChanged; // Did the hard mode setting change since the last apply?
+    private boolean typedAnswersChanged; // Did the answer input change since the last apply?
+    private Handler handler = new Handler(); // Delays applying preference changes.
+    private QuizLoader quizLoader; // Loads the preferences and first quiz in the background.
+    private byte[] pendingQuizState; // Saved quiz being restored while the loader runs.
+
+    /**
+     * Reads the number of answer choices from the preferences, rounded down to an even
+     * number. The loader, the fragment and classroom hosting all read it here.
+     * @param preferences the app's preferences, with the defaults set
+     * @return the number of answer choices
+     */
+    public static int getChoiceCount(SharedPreferences preferences) {
+        return Integer.parseInt(preferences.getString(CHOICES, null)) / 2 * 2;
+    }
 
     /**
      * onCreate generated the appropriate layout to inflate, depending on the screen size.
@@ -28,22 +66,25 @@ public class QuizActivity extends AppCompatActivity {
      * includes both the fragment_quiz.xml and the fragment_settings.xml. Otherwise it just
      * inflates the standard content_main.xml with the fragment_quiz.
      *
-     * All default preferences are set using the preferences.xml file.
-     * @param savedInstanceState the saved state to restore (not being used)
+     * The default preferences (from preferences.xml), the flag catalog and the first quiz
+     * are loaded in the background by a QuizLoader; the quiz shows a placeholder until then.
+     * @param savedInstanceState the saved state with the quiz in progress to restore, if any
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTrace.begin();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_quiz);
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
 
-        // Set default values n tha apps SharedPreferences
-        PreferenceManager.setDefaultValues(this, R.xml.preferrences, false);
-
-        // Register listener for SharedPreferences changes.
-        PreferenceManager.getDefaultSharedPreferences(this)
-                .registerOnSharedPreferenceChangeListener(preferencesChangeListener);
+        // Set default preferences and build the first quiz (or restore the saved quiz after a
+        // rotation or process death) off the main thread.
+        byte[] quizState = savedInstanceState != null ?
+                savedInstanceState.getByteArray(QUIZ_STATE) : null;
+        pendingQuizState = quizState;
+        quizLoader = new QuizLoader(this);
+        quizLoader.start(quizState, quizLoadedListener);
 
         // Determine screen size.
         int screenSize = getResources().getConfiguration().screenLayout
@@ -60,27 +101,87 @@ public class QuizActivity extends AppCompatActivity {
     }
 
     /**
-     * onStart is called after onCreate completes it's execution. This method will update
-     * the number of guess rows to display and the regions to choose flags from, then resets
-     * the quiz with the new preferences.
+     * Saves the quiz in progress as a compact snapshot (see QuizEngine.saveState) so it can
+     * be restored exactly when the activity is recreated. If the quiz is still loading, the
+     * snapshot it is being restored from is kept instead.
+     * @param outState the bundle to save the state in
+     */
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        QuizActivityFragment quizFragment = (QuizActivityFragment)
+                getSupportFragmentManager().findFragmentById(R.id.quizFragment);
+        byte[] quizState = quizFragment.isQuizLoaded() ?
+                quizFragment.saveQuizState() : pendingQuizState;
+        if (quizState != null)
+            outState.putByteArray(QUIZ_STATE, quizState);
+    }
+
+    /**
+     * Stops a quiz that is still loading from being delivered to the destroyed activity.
+     */
+    @Override
+    protected void onDestroy() {
+        quizLoader.cancel();
+        handler.removeCallbacks(applyPreferencesRunnable);
+        super.onDestroy();
+    }
+
+    /**
+     * onStart is called after onCreate completes it's execution. If preferences were changed
+     * while the quiz was hidden (e.g. in the SettingsActivity), this applies them right away
+     * instead of waiting for the delay. The first quiz is configured by the QuizLoader.
      */
     @Override
     protected void onStart() {
         super.onStart();
+        applyPreferenceChanges();
+    }
 
-        if (preferencesChanged) {
-            // Now that the default preferences have been set,
-            // initialize QuizActivityFragment and start the quiz.
-            QuizActivityFragment quizFragment = (QuizActivityFragment)
-                    getSupportFragmentManager().findFragmentById(R.id.quizFragment);
-            quizFragment.updateGuessRows(
-                    PreferenceManager.getDefaultSharedPreferences(this));
-            quizFragment.updateRegions(
-                    PreferenceManager.getDefaultSharedPreferences(this));
-            quizFragment.resetQuiz();
-        }
+    /**
+     * Applies the preference changes made since the last call, if any, with a single rebuild
+     * of the quiz: the number of guess rows and the regions are updated only if they changed,
+     * then the quiz is reset once.
+     */
+    private void applyPreferenceChanges() {
+        handler.removeCallbacks(applyPreferencesRunnable);
+        if (!preferencesChanged)
+            return;
+
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
+        QuizActivityFragment quizFragment = (QuizActivityFragment)
+                getSupportFragmentManager().findFragmentById(R.id.quizFragment);
+        if (choicesChanged)
+            quizFragment.updateGuessRows(sharedPreferences);
+        if (regionsChanged)
+            quizFragment.updateRegions(sharedPreferences);
+        if (adaptiveChanged)
+            quizFragment.updateAdaptive(sharedPreferences);
+        if (hardModeChanged)
+            quizFragment.updateHardMode(sharedPreferences);
+        if (typedAnswersChanged)
+            quizFragment.updateTypedAnswers(sharedPreferences);
+        quizFragment.resetQuiz();
+
+        preferencesChanged = false;
+        choicesChanged = false;
+        regionsChanged = false;
+        adaptiveChanged = false;
+        hardModeChanged = false;
+        typedAnswersChanged = false;
+
+        Toast.makeText(QuizActivity.this,
+                R.string.reset_quiz,
+                Toast.LENGTH_SHORT).show();
     }
 
+    private Runnable applyPreferencesRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyPreferenceChanges();
+        }
+    };
+
     /**
      * Shows the settings menu if the app is running on a phone or a portrait-oriented tablet
      * only. (Large screen sizes include the settings fragment in the layout)
@@ -96,6 +197,8 @@ public class QuizActivity extends AppCompatActivity {
         if (orientation == Configuration.ORIENTATION_PORTRAIT) {
             // Inflate the menu.
             getMenuInflater().inflate(R.menu.menu_quiz, menu);
+            menu.findItem(R.id.action_metrics).setVisible(QuizMetrics.ENABLED);
+            menu.findItem(R.id.action_host).setChecked(ClassroomHosting.isHosting());
             return true;
         }
         else
@@ -105,23 +208,99 @@ public class QuizActivity extends AppCompatActivity {
     /**
      * Display the SettingsActivity when running on a phone or portrait-oriented tablet. Starts
      * the activity by use of an intent (No data is passed because the shared preference,
-     * preference.xml has all the data necessary)
+     * preference.xml has all the data necessary) In debug builds the menu also has an item
+     * showing the QuizMetrics, and the host item starts or stops hosting a classroom quiz.
      *
      * @param item The menu item
      * @return True if an option item was selected
      */
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_metrics) {
+            // Show the QuizMetrics (debug builds only).
+            new MetricsDialogFragment().show(getSupportFragmentManager(), "metrics");
+            return true;
+        }
+        if (item.getItemId() == R.id.action_host) {
+            toggleHosting(item);
+            return true;
+        }
+
         Intent preferencesIntent = new Intent(this, SettingsActivity.class);
         startActivity(preferencesIntent);
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Starts hosting a classroom quiz (see ClassroomHosting) with the current number of
+     * choices, or stops hosting one, and tells the user where players can join.
+     * @param item the host menu item, checked while hosting
+     */
+    private void toggleHosting(final MenuItem item) {
+        if (ClassroomHosting.isHosting()) {
+            ClassroomHosting.stop();
+            item.setChecked(false);
+            Toast.makeText(this, R.string.hosting_stopped, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        final int choiceCount =
+                getChoiceCount(PreferenceManager.getDefaultSharedPreferences(this));
+        final Context context = getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean hosting;
+                try {
+                    ClassroomHosting.start(context, choiceCount);
+                    hosting = true;
+                }
+                catch (IOException e) {
+                    Log.e(TAG, "Error hosting a classroom quiz", e);
+                    hosting = false;
+                }
+                final String address = ClassroomHosting.findLocalAddress();
+                final boolean started = hosting;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        item.setChecked(started);
+                        Toast.makeText(context, started ? getString(R.string.hosting,
+                                address != null ? address : getString(R.string.no_network),
+                                ClassroomProtocol.DEFAULT_PORT) :
+                                getString(R.string.hosting_failed), Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        }, "FlagQuiz host starter").start();
+    }
+
+    /**
+     * Starts the quiz loaded by the QuizLoader, then starts listening for preference changes
+     * (registering only now keeps the default values being set from counting as changes).
+     */
+    private QuizLoader.Listener quizLoadedListener = new QuizLoader.Listener() {
+        @Override
+        public void onQuizLoaded(SharedPreferences preferences, FlagCatalog catalog,
+                                 QuizEngine engine, boolean restored) {
+            pendingQuizState = null;
+            QuizActivityFragment quizFragment = (QuizActivityFragment)
+                    getSupportFragmentManager().findFragmentById(R.id.quizFragment);
+            quizFragment.updateTypedAnswers(preferences);
+            quizFragment.startQuiz(catalog, engine, restored);
+
+            // Register listener for SharedPreferences changes.
+            preferences.registerOnSharedPreferenceChangeListener(preferencesChangeListener);
+        }
+    };
+
     /**
      * Listener to handle changes in the apps shared preferences (preferences.xml)
      *
      * If either the guess option or regions options are changed, teh quiz qill retstart
-     * with the new settings.
+     * with the new settings. Changes are collected and applied together once no further
+     * change has arrived for PREFERENCES_DELAY_MILLIS, so toggling several regions in a row
+     * (e.g. in the settings pane beside the quiz on tablets) rebuilds the quiz only once.
      */
     private SharedPreferences.OnSharedPreferenceChangeListener preferencesChangeListener =
             new SharedPreferences.OnSharedPreferenceChangeListener() {
@@ -129,26 +308,15 @@ public class QuizActivity extends AppCompatActivity {
                 public void onSharedPreferenceChanged(
                         SharedPreferences sharedPreferences, String s) {
                     // Called when the user chnges the apps preferences
-                    preferencesChanged = true; // user Changed app settings
-
-                    QuizActivityFragment quizFragment = (QuizActivityFragment)
-                            getSupportFragmentManager().findFragmentById(R.id.quizFragment);
-
                     if (s.equals(CHOICES)) { // # of choices to display changed
-                        if (quizFragment != null) {
-                            quizFragment.updateGuessRows(sharedPreferences);
-                            quizFragment.resetQuiz();
-                        }
+                        choicesChanged = true;
                     }
                     else if (s.equals(REGIONS)) { // Regions to include changed
                         Set<String> regions =
                                 sharedPreferences.getStringSet(REGIONS, null);
 
                         if (regions != null && regions.size() > 0) {
-                            if(quizFragment != null) {
-                                quizFragment.updateRegions(sharedPreferences);
-                                quizFragment.resetQuiz();
-                            }
+                            regionsChanged = true;
                         }
                         else {
                             // Must select at least one region -- set North America as default
@@ -162,12 +330,26 @@ public class QuizActivity extends AppCompatActivity {
                             Toast.makeText(QuizActivity.this,
                                     R.string.default_region_message,
                                     Toast.LENGTH_SHORT).show();
+                            return; // Applied when the default region is stored.
                         }
                     }
+                    else if (s.equals(ADAPTIVE)) { // Focus on missed flags changed
+                        adaptiveChanged = true;
+                    }
+                    else if (s.equals(HARD_MODE)) { // Look-alike wrong answers changed
+                        hardModeChanged = true;
+                    }
+                    else if (s.equals(TYPED_ANSWERS)) { // Typing instead of buttons changed
+                        typedAnswersChanged = true;
+                    }
+                    else {
+                        return; // Not a quiz setting.
+                    }
 
-                    Toast.makeText(QuizActivity.this,
-                            R.string.reset_quiz,
-                            Toast.LENGTH_SHORT).show();
+                    // Restart the delay so a burst of changes is applied once.
+                    preferencesChanged = true; // user Changed app settings
+                    handler.removeCallbacks(applyPreferencesRunnable);
+                    handler.postDelayed(applyPreferencesRunnable, PREFERENCES_DELAY_MILLIS);
                 }
             };
 }
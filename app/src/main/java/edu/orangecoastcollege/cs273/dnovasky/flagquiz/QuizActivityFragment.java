@@ -1,54 +1,76 @@
 package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
 
 import android.content.SharedPreferences;
-import android.content.res.AssetManager;
-import android.graphics.drawable.Drawable;
+import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.app.Fragment;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.inputmethod.EditorInfo;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.security.SecureRandom;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.CountryNameIndex;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizEngine;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizHistory;
+
 /**
- * QuizActivityFragment contains the flag Quiz logic (correct/incorrect/statistics).
- * It also handles the delay of guessing correctly so that users can see the "Correct!"
- * message before the next flag is displayed.
+ * QuizActivityFragment displays the flag quiz run by a QuizEngine (correct/incorrect/
+ * statistics) and passes the user's guesses to it. It also handles the delay of guessing
+ * correctly so that users can see the "Correct!" message before the next flag is displayed.
+ *
+ * With typed answers the user types the country name instead, and the guess buttons show
+ * the countries matching the text so far (see CountryNameIndex), updated on every keystroke.
+ *
+ * The fragment shows a placeholder until QuizActivity hands it the first quiz with startQuiz;
+ * the other quiz methods may only be called after that.
  */
 public class QuizActivityFragment extends Fragment {
     // String used when logging error messages
     private static final String TAG = "FlagQuiz Activity";
 
-    private static final int FLAGS_IN_QUIZ = 10;
+    private static final int FLAGS_TO_PREFETCH = 3; // Upcoming flags decoded in advance.
+    private static final int SUGGESTIONS = 4; // Countries suggested for a typed answer.
 
-    private List<String> fileNameList; // Will contain flag file names.
-    private List<String> quizCountriesList; // Will contain countries in the current quiz.
+    private FlagCatalog catalog; // Will contain every flag's file and country name.
+    private QuizEngine engine; // Will run the quiz; null until the first quiz is loaded.
     private Set<String> regionSet; // Will contain world regions in the current quiz.
-    private String correctAnswer; // Will contain the correct country for the current flag.
-    private int totalGuesses; // Will contain the total number of guesses made.
-    private int correctAnswers; // Will contain the number of correct guesses.
-    private int guessRows; // Will contain the number of rows displaying guess buttons.
-    private SecureRandom random; // Will be used to randomize the quiz.
     private Handler handler; // Will be used to delay the loading of the next flag.
+    private FlagPrefetcher prefetcher; // Decodes upcoming flags in the background.
+    private long flagRequestStart; // QuizMetrics start time of the current flag's request.
+    private QuizHistory history; // Records every guess; null if it couldn't be opened.
+    private long flagShownTime; // Uptime when the current flag was shown, for response times.
+    private int shownFlagId = -1; // Flag id flagImageView shows, or -1 for the placeholder.
+    private boolean typedAnswers; // Whether the user types answers instead of picking them.
+    private CountryNameIndex nameIndex; // Matches typed answers; null until they are used.
+    private final int[] suggestionFlagIds = new int[SUGGESTIONS]; // Flag of each suggestion.
+    private int suggestionCount; // Number of suggestions for the typed text.
 
     private TextView questionNumberTextView; // Shows current question number.
     private ImageView flagImageView; // Displays a flag.
-    private LinearLayout[] guessLinearLayouts; // Rows of answer buttons
+    private EditText answerEditText; // Typed answer
+    private GuessButtonGrid guessButtonGrid; // Answer buttons, or suggestions of typed answers
     private TextView answerTextView; // Displays correct answer
 
+    // R.string.correct_answer split around its country name, and the reused characters of
+    // the text built from it, so showing the correct answer allocates nothing.
+    private String correctAnswerPrefix;
+    private String correctAnswerSuffix;
+    private char[] correctAnswerChars = new char[64];
+
     /**
      * Configures the QuizActivityFragment when it's view is created
      * @param inflater the layout inflater.
@@ -62,35 +84,94 @@ public class QuizActivityFragment extends Fragment {
         super.onCreateView(inflater, container, savedInstanceState);
         View view = inflater.inflate(R.layout.fragment_quiz, container, false);
 
-        fileNameList = new ArrayList<>();
-        quizCountriesList = new ArrayList<>();
-        random = new SecureRandom();
         handler = new Handler();
 
         // Get references to GUI components
         questionNumberTextView = (TextView) view.findViewById(R.id.questionNumberTextView);
         flagImageView = (ImageView) view.findViewById(R.id.flagImageView);
-        guessLinearLayouts = new LinearLayout[4];
-        guessLinearLayouts[0] = (LinearLayout) view.findViewById(R.id.row1LinearLayout);
-        guessLinearLayouts[1] = (LinearLayout) view.findViewById(R.id.row2LinearLayout);
-        guessLinearLayouts[2] = (LinearLayout) view.findViewById(R.id.row3LinearLayout);
-        guessLinearLayouts[3] = (LinearLayout) view.findViewById(R.id.row4LinearLayout);
+        answerEditText = (EditText) view.findViewById(R.id.answerEditText);
+        guessButtonGrid = (GuessButtonGrid) view.findViewById(R.id.guessButtonGrid);
         answerTextView = (TextView) view.findViewById(R.id.answerTextView);
 
-        // Configure listeners for the guess buttons
-        for (LinearLayout row : guessLinearLayouts) {
-            for (int column = 0; column < row.getChildCount(); column++) {
-                Button button = (Button) row.getChildAt(column);
-                button.setOnClickListener(guessButtonListener);
-            }
-        }
+        String correctAnswer = getString(R.string.correct_answer);
+        int nameStart = correctAnswer.indexOf("%1$s");
+        correctAnswerPrefix = correctAnswer.substring(0, nameStart);
+        correctAnswerSuffix = correctAnswer.substring(nameStart + "%1$s".length());
 
-        // Set questionNumberTextView's text.
+        // The grid tags each guess button with its position, which is the engine's answer
+        // choice it displays. Its buttons stay disabled until the first quiz is loaded.
+        guessButtonGrid.setGuessListener(guessButtonListener);
+        guessButtonGrid.setChoiceCount(QuizEngine.DEFAULT_CHOICE_COUNT);
+        answerEditText.addTextChangedListener(answerWatcher);
+        answerEditText.setOnEditorActionListener(answerActionListener);
+
+        // Set questionNumberTextView's text and show a placeholder until the quiz is loaded.
         questionNumberTextView.setText(
-                getString(R.string.question, 1, FLAGS_IN_QUIZ));
+                getString(R.string.question, 1, QuizEngine.DEFAULT_QUIZ_LENGTH));
+        flagImageView.setImageResource(R.drawable.flag_placeholder);
+        answerTextView.setText("");
         return view; // Returns the fragment'sview for display;
     }
 
+    /**
+     * Starts the first quiz once QuizLoader has loaded it in the background.
+     * @param catalog the flag catalog
+     * @param engine an engine configured from the preferences and reset for the first quiz,
+     *               or holding a restored quiz
+     * @param restored whether the engine holds a restored quiz, whose current question is
+     *                 shown again as it was (the flag normally comes from FlagBitmapCache,
+     *                 in the size cached before a rotation until the new size is decoded)
+     */
+    public void startQuiz(FlagCatalog catalog, QuizEngine engine, boolean restored) {
+        this.catalog = catalog;
+        this.engine = engine;
+        prefetcher = new FlagPrefetcher(getActivity(), catalog,
+                FlagBitmapCache.get(getActivity()));
+        history = QuizHistoryLoader.get(getActivity()); // Already opened by QuizLoader.
+
+        showGuessRows();
+        if (restored && engine.getCorrectFlagId() >= 0)
+            showQuestion(QuizMetrics.start());
+        else
+            loadNextFlag(); // Starts the quiz by loading the first flag.
+    }
+
+    /**
+     * @return the quiz in progress as a compact snapshot for QuizEngine.restoreState
+     */
+    public byte[] saveQuizState() {
+        return engine.saveState();
+    }
+
+    /**
+     * @return true once the first quiz has been started with startQuiz
+     */
+    public boolean isQuizLoaded() {
+        return engine != null;
+    }
+
+    /**
+     * Hands the guesses recorded so far to the history's background writer.
+     */
+    @Override
+    public void onPause() {
+        super.onPause();
+        if (history != null)
+            history.flush();
+    }
+
+    /**
+     * Stops any pending flag loads and background decoding when the fragment's view goes away.
+     */
+    @Override
+    public void onDestroyView() {
+        handler.removeCallbacksAndMessages(null);
+        QuizMetrics.endQuestion();
+        if (prefetcher != null)
+            prefetcher.shutdown();
+        super.onDestroyView();
+    }
+
     /**
      * updateGuessRows is called from QuizActivity when the app is launched and each time
      * the user changes the number of guess buttons to display with each flag.
@@ -98,17 +179,18 @@ public class QuizActivityFragment extends Fragment {
      */
     public void updateGuessRows(SharedPreferences sharedPreferences) {
         // Get the number of guess buttons that should be displayed.
-        String choices =
-                sharedPreferences.getString(QuizActivity.CHOICES, null);
-        guessRows = Integer.parseInt(choices) / 2;
-
-        // Hide all guess button LinearLayouts
-        for (LinearLayout layout : guessLinearLayouts)
-            layout.setVisibility(View.GONE);
+        engine.setChoiceCount(QuizActivity.getChoiceCount(sharedPreferences));
+        showGuessRows();
+    }
 
-        // Display appropriate guess button LinearLayouts
-        for (int row = 0; row < guessRows; row++)
-            guessLinearLayouts[row].setVisibility(View.VISIBLE);
+    /**
+     * Displays as many guess buttons as the engine has answer choices, or as there are
+     * suggestions for typed answers.
+     */
+    private void showGuessRows() {
+        int count = typedAnswers ? SUGGESTIONS : engine.getChoiceCount();
+        if (guessButtonGrid.getChoiceCount() != count)
+            guessButtonGrid.setChoiceCount(count);
     }
 
     /**
@@ -117,133 +199,226 @@ public class QuizActivityFragment extends Fragment {
      */
     public void updateRegions(SharedPreferences sharedPreferences) {
         regionSet = sharedPreferences.getStringSet(QuizActivity.REGIONS, null);
+        int flagCount = engine.setRegions(regionSet);
+        if (flagCount < QuizEngine.DEFAULT_QUIZ_LENGTH)
+            Log.w(TAG, "Only " + flagCount + " flags in the selected regions");
     }
 
     /**
-     * Configure and start up a new Quiz based on the settings.
+     * Chooses whether quizzes favour the flags the user misses, based on the values in the
+     * shared preferences.
+     * @param sharedPreferences the shared preferences from preferences.xml
      */
-    public void resetQuiz() {
-        // Use AssetManager to get image file names for enabled regions.
-        AssetManager assets = getActivity().getAssets();
-        fileNameList.clear();
-
-        try {
-            // Loop through each region.
-            for (String region : regionSet){
-                // Get a list of all flag image files in this region
-                String[] paths = assets.list(region);
-
-                for (String path : paths)
-                    fileNameList.add(path.replace(".png", ""));
-            }
-        }
-        catch (IOException e){
-            Log.e(TAG, "Error loading image file name", e);
-        }
+    public void updateAdaptive(SharedPreferences sharedPreferences) {
+        engine.setAdaptive(sharedPreferences.getBoolean(QuizActivity.ADAPTIVE, false));
+    }
 
-        correctAnswers = 0; // Resets the number of correct answers made.
-        totalGuesses = 0; // Resets the total number of guesses made.
-        quizCountriesList.clear(); // Clears the previous list of quiz countries
+    /**
+     * Chooses whether the wrong answers are flags that look like the correct one, based on
+     * the values in the shared preferences.
+     * @param sharedPreferences the shared preferences from preferences.xml
+     */
+    public void updateHardMode(SharedPreferences sharedPreferences) {
+        engine.setHardMode(sharedPreferences.getBoolean(QuizActivity.HARD_MODE, false));
+    }
 
-        int flagCounter = 1;
-        int numberOfFlags = fileNameList.size();
+    /**
+     * Chooses whether the user types the answers instead of picking one of the answer
+     * choices, based on the values in the shared preferences. QuizActivity also calls this
+     * before the first quiz starts.
+     * @param sharedPreferences the shared preferences from preferences.xml
+     */
+    public void updateTypedAnswers(SharedPreferences sharedPreferences) {
+        typedAnswers = sharedPreferences.getBoolean(QuizActivity.TYPED_ANSWERS, false);
+        if (typedAnswers && nameIndex == null)
+            nameIndex = FlagCatalogLoader.getNameIndex(getActivity()); // Built by QuizLoader.
+        answerEditText.setVisibility(typedAnswers ? View.VISIBLE : View.GONE);
+        if (engine != null)
+            showGuessRows();
+    }
 
-        // Adds FLAGS_IN_QUIZ random file names to the quizCountriesList.
-        while (flagCounter <= FLAGS_IN_QUIZ) {
-            int randomIndex = random.nextInt(numberOfFlags);
+    /**
+     * Replaces the random number generator used to draw flags, wrong answers and button
+     * positions, starting with the next reset. Passing a seeded generator, such as
+     * new XoroshiroRandom(seed), makes every quiz of the session repeatable.
+     * @param random the random number generator to use
+     */
+    public void setRandom(Random random) {
+        engine.setRandom(random);
+    }
 
-            // Get the random file name.
-            String filename = fileNameList.get(randomIndex);
+    /**
+     * Sets the number of flags in each quiz, starting with the next reset. Quizzes drawn from
+     * fewer flags than this are shortened to the number of flags available.
+     * @param length the number of flags in a quiz
+     */
+    public void setQuizLength(int length) {
+        engine.setQuizLength(length);
+    }
 
-            // If the region is enabled and it hasn't already been chosen
-            if (!quizCountriesList.contains(filename)) {
-                quizCountriesList.add(filename); // add the file to the list
-                ++flagCounter;
-            }
-        }
+    /**
+     * Configure and start up a new Quiz based on the settings.
+     */
+    public void resetQuiz() {
+        long start = QuizMetrics.start();
+
+        // Discard a pending next flag and any flags decoded for the previous quiz.
+        handler.removeCallbacksAndMessages(null);
+        prefetcher.cancel();
+
+        // Resets the score and draws the quiz's flags from the enabled regions.
+        engine.reset();
         loadNextFlag(); // Starts the quiz by loading the first flag.
+        QuizMetrics.end(QuizMetrics.RESET_QUIZ, start);
     }
 
     /**
      * After user guesses a flag correctly, load next flag.
      */
     private void loadNextFlag() {
-        // Get the file name of the next flag and remove it from the list
-        String nextImage = quizCountriesList.remove(0);
-        correctAnswer = nextImage; // Update the correct answer.
-        answerTextView.setText(""); // Clear the answerTextView.
+        long start = QuizMetrics.start();
+        QuizMetrics.beginQuestion(flagImageView);
+
+        // Move the engine to the next flag
+        engine.nextQuestion();
+        showQuestion(start);
+        QuizMetrics.end(QuizMetrics.LOAD_NEXT_FLAG, start);
+    }
+
+    /**
+     * Displays the engine's current question: its number, flag and answer choices. Choices
+     * guessed before a restore stay disabled, and an answered question waits for the next
+     * flag again.
+     * @param start the QuizMetrics start time of the question being shown
+     */
+    private void showQuestion(long start) {
+        if (answerTextView.length() > 0)
+            answerTextView.setText(""); // Clear the answerTextView.
 
         // Display current question number.
         questionNumberTextView.setText(getString(
-            R.string.question, correctAnswers + 1, FLAGS_IN_QUIZ));
-        String region = nextImage.substring(0, nextImage.indexOf('-'));
-
-        // Use AssetManager to load next image from assets folder.
-        AssetManager assets = getActivity().getAssets();
-
-        // Get an InputStream to the asset representing the next flag and
-        // try to open that InputStream.
-        try (InputStream stream =
-                assets.open(region + "/" + nextImage + ".png")) {
-            // Load the asset as a drawable and display it on the flagImageView
-            Drawable flag = Drawable.createFromStream(stream, nextImage);
-            flagImageView.setImageDrawable(flag);
+            R.string.question, engine.getQuestionNumber(), engine.getFlagsInQuiz()));
+
+        // Display the flag once it is decoded (normally it already has been) and
+        // start decoding the flags that follow it.
+        flagImageView.setImageResource(R.drawable.flag_placeholder);
+        shownFlagId = -1;
+        flagRequestStart = start;
+        flagShownTime = SystemClock.uptimeMillis(); // Updated once the flag is displayed.
+        prefetcher.setTargetSize(flagImageView.getWidth(), flagImageView.getHeight());
+        prefetcher.request(engine.getCorrectFlagId(), flagDecodedCallback);
+        for (int ahead = 1; ahead <= FLAGS_TO_PREFETCH; ahead++) {
+            int flagId = engine.getUpcomingFlagId(ahead);
+            if (flagId >= 0)
+                prefetcher.prefetch(flagId);
         }
-        catch(IOException e) {
-            Log.e(TAG, "Error loading " + nextImage, e);
-        }
-
-        Collections.shuffle(fileNameList); // Shuffles file names.
 
-        // Put the correct answer at the end of the fileNameList
-        int correct = fileNameList.indexOf(correctAnswer);
-        fileNameList.add(fileNameList.remove(correct));
+        // Show the country name of each answer choice on its button; the grid skips the
+        // buttons that already show the right name and state. A typed answer starts empty,
+        // without suggestions.
+        long bindStart = QuizMetrics.start();
+        if (typedAnswers) {
+            answerEditText.setEnabled(true);
+            if (answerEditText.length() > 0)
+                answerEditText.getText().clear(); // answerWatcher clears the suggestions.
+            else
+                showSuggestions();
+        }
+        else {
+            for (int choice = 0; choice < engine.getChoiceCount(); choice++) {
+                int flagId = engine.getChoiceFlagId(choice);
+                guessButtonGrid.bindChoice(choice, flagId, catalog.getName(flagId),
+                        !engine.isChoiceGuessed(choice));
+            }
+        }
+        QuizMetrics.end(QuizMetrics.BIND_BUTTONS, bindStart);
 
-        // Add 2, 4, 6, or 8 guess buttons based on the value of guessRows
-        for (int row = 0; row < guessRows; row++) {
-            // Place button in currentTableRow
-            for (int column = 0; column < guessLinearLayouts[row].getChildCount(); column++) {
-                // Get reference to button to configure.
-                Button newGuessButton = (Button) guessLinearLayouts[row].getChildAt(column);
-                newGuessButton.setEnabled(true);
+        // A restored question may already have been answered.
+        if (engine.isQuestionAnswered()) {
+            showCorrectAnswer();
+            if (!engine.isQuizComplete())
+                scheduleNextFlag();
+        }
+    }
 
-                // Get country name and set it as newGuessButton's text
-                String fileName = fileNameList.get((row * 2) + column);
-                newGuessButton.setText(getCountryName(fileName));
+    /**
+     * Shows the countries matching the typed answer on the guess buttons and disables the
+     * buttons left over. Matching allocates nothing, so this can run on every keystroke.
+     */
+    private void showSuggestions() {
+        long start = QuizMetrics.start();
+        suggestionCount = nameIndex.match(answerEditText.getText(), suggestionFlagIds);
+        for (int choice = 0; choice < SUGGESTIONS; choice++) {
+            if (choice < suggestionCount) {
+                int flagId = suggestionFlagIds[choice];
+                guessButtonGrid.bindChoice(choice, flagId, catalog.getName(flagId), true);
             }
+            else
+                guessButtonGrid.bindChoice(choice, -1, "", false);
         }
+        QuizMetrics.end(QuizMetrics.SUGGEST, start);
+    }
 
-        // Randomly replace one button's text with the correct answer
-        int row = random.nextInt(guessRows); // Pick random row.
-        int column = random.nextInt(2); // Pick random column.
-        LinearLayout randomRow = guessLinearLayouts[row]; // Get the row.
-        String countryName = getCountryName(correctAnswer);
-        ((Button) randomRow.getChildAt(column)).setText(countryName);
+    /**
+     * Displays the country name of the correct answer in green and disables every button.
+     */
+    private void showCorrectAnswer() {
+        // setText(char[], ...) wraps the array instead of copying it into a new String.
+        String name = catalog.getName(engine.getCorrectFlagId());
+        int nameStart = correctAnswerPrefix.length();
+        int suffixStart = nameStart + name.length();
+        int length = suffixStart + correctAnswerSuffix.length();
+        if (correctAnswerChars.length < length)
+            correctAnswerChars = new char[length];
+        correctAnswerPrefix.getChars(0, nameStart, correctAnswerChars, 0);
+        name.getChars(0, name.length(), correctAnswerChars, nameStart);
+        correctAnswerSuffix.getChars(0, correctAnswerSuffix.length(), correctAnswerChars,
+                suffixStart);
+        answerTextView.setText(correctAnswerChars, 0, length);
+        answerTextView.setTextColor(
+                getResources().getColor(R.color.correct_answer,
+                        getContext().getTheme()));
+
+        guessButtonGrid.disableButtons(); // Disable all guess buttons.
+        if (typedAnswers)
+            answerEditText.setEnabled(false);
     }
 
     /**
-     *  Parses the country flag file name (e.g. Oceania-American_Samoa.png) and returns
-     *  the country name (e.g. American Samoa), replacing underscores with spaces.
-     * @param fileName the flag file name
-     * @return The country name, parsed from the file name
+     * Loads the next flag after a 2 second delay, so the user can see the correct answer.
      */
-    private String getCountryName(String fileName){
-        return (fileName.substring
-                (fileName.indexOf('-') + 1, fileName.length()))
-                .replaceAll("_", " ");
+    private void scheduleNextFlag() {
+        handler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                loadNextFlag();
+            }
+        }, 2000); // 2000 millisecond for 2-second delay.
     }
 
     /**
-     * Utility method that disables all answer buttons
+     * Displays a flag decoded by the prefetcher if it is still the current flag.
      */
-    private void disableButtons() {
-        for (int row = 0; row < guessRows; row++) {
-            LinearLayout guessRow = guessLinearLayouts[row];
-            for (int column = 0; column < guessRow.getChildCount(); column++) {
-                guessRow.getChildAt(column).setEnabled(false);
+    private FlagPrefetcher.Callback flagDecodedCallback = new FlagPrefetcher.Callback() {
+        @Override
+        public void onFlagDecoded(int flagId, Bitmap bitmap) {
+            if (flagId != engine.getCorrectFlagId())
+                return; // The quiz has moved on.
+
+            if (bitmap != null) {
+                flagImageView.setImageBitmap(bitmap);
+                if (shownFlagId != flagId) {
+                    // The flag first appears; a sharper size of it may replace this one.
+                    shownFlagId = flagId;
+                    flagShownTime = SystemClock.uptimeMillis();
+                    QuizMetrics.end(QuizMetrics.FLAG_SHOWN, flagRequestStart);
+                    StartupTrace.endOnDraw(flagImageView);
+                }
             }
+            else
+                Log.e(TAG, "Error loading " + catalog.getFileName(flagId));
         }
-    }
+    };
 
     /**
      * Called when a guess button is clicked. this listener is used for all button in the
@@ -252,49 +427,101 @@ public class QuizActivityFragment extends Fragment {
     private View.OnClickListener guessButtonListener = new View.OnClickListener() {
         @Override
         public void onClick(View view) {
+            long start = QuizMetrics.start();
             Button guessButton = ((Button) view);
-            String guess = guessButton.getText().toString() + "!";
-            String answer = getCountryName(correctAnswer) + "!";
-            ++totalGuesses; // Increment the number of guesses the user has made.
-
-            if(guess.equals(answer)) { // If the guess is correct
-                ++correctAnswers; // Increment the number of correct answers.
-
-                // Display correct answer in green text
-                answerTextView.setText(answer);
-                answerTextView.setTextColor(
-                        getResources().getColor(R.color.correct_answer,
-                                getContext().getTheme()));
-
-                disableButtons(); // Disable all guess buttons.
-
-                // If the user has correctly identified FLAGS_IN_QUIZ flags.
-                if (correctAnswers == FLAGS_IN_QUIZ) {
-                    // DialogFragment to display quiz stats and start new quiz
-                    ResultsDialogFragment quizResults = new ResultsDialogFragment();
-                    Bundle args = new Bundle();
-                    args.putInt("totalGuesses", totalGuesses);
-                    quizResults.setArguments(args);
-                    quizResults.setCancelable(false);
-                    quizResults.show(getFragmentManager(), "dialog");
-                }
-                else { // Answer is correct but quiz is not over.
-                    // Load the next flag after a 2 second delay.
-                    handler.postDelayed(new Runnable() {
-                        @Override
-                        public void run() {
-                            loadNextFlag();
-                        }
-                    }, 2000); // 2000 millisecond for 2-second delay.
-                }
+            int choice = (Integer) guessButton.getTag();
+
+            // The engine counts the guess and checks the button's answer choice, or the
+            // country the button suggests for a typed answer.
+            boolean correct = typedAnswers ? engine.guessFlag(suggestionFlagIds[choice]) :
+                    engine.guess(choice);
+            showGuessResult(correct, guessButton);
+            QuizMetrics.end(QuizMetrics.GUESS, start);
+        }
+    };
+
+    /**
+     * Records a guess in the history and shows whether it was correct.
+     * @param correct whether the guess was correct
+     * @param guessButton the button of the guess, disabled if the guess was wrong, or null if
+     *                    the answer was typed
+     */
+    private void showGuessResult(boolean correct, Button guessButton) {
+        // The history records the guess with the time since the flag was shown.
+        if (history != null)
+            history.recordGuess(engine.getCorrectFlagId(), correct,
+                    SystemClock.uptimeMillis() - flagShownTime);
+
+        if(correct) { // If the guess is correct
+            // Display correct answer in green text
+            showCorrectAnswer();
+
+            // If the user has correctly identified every flag in the quiz.
+            if (engine.isQuizComplete()) {
+                QuizMetrics.endQuestion();
+
+                // DialogFragment to display quiz stats and start new quiz
+                ResultsDialogFragment quizResults = new ResultsDialogFragment();
+                Bundle args = new Bundle();
+                args.putInt("totalGuesses", engine.getTotalGuesses());
+                quizResults.setArguments(args);
+                quizResults.setCancelable(false);
+                quizResults.show(getFragmentManager(), "dialog");
             }
-            else { // Answer was incorrect
-                // Display "Incorrect!" in red
-                answerTextView.setText(R.string.incorrect_answer);
-                answerTextView.setTextColor(getResources().getColor(
-                        R.color.incorrect_answer, getContext().getTheme()));
-                guessButton.setEnabled(false);
+            else { // Answer is correct but quiz is not over.
+                // Load the next flag after a 2 second delay.
+                scheduleNextFlag();
             }
         }
+        else { // Answer was incorrect
+            // Display "Incorrect!" in red
+            answerTextView.setText(R.string.incorrect_answer);
+            answerTextView.setTextColor(getResources().getColor(
+                    R.color.incorrect_answer, getContext().getTheme()));
+            if (guessButton != null)
+                guessButton.setEnabled(false);
+        }
+    }
+
+    /**
+     * Updates the suggestions on every change of the typed answer.
+     */
+    private TextWatcher answerWatcher = new TextWatcher() {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            if (typedAnswers && engine != null)
+                showSuggestions();
+        }
     };
+
+    /**
+     * Guesses the typed answer when the user presses done on the keyboard: the country it
+     * names, or else the only country suggested for it. Otherwise the keyboard stays open.
+     */
+    private TextView.OnEditorActionListener answerActionListener =
+            new TextView.OnEditorActionListener() {
+                @Override
+                public boolean onEditorAction(TextView textView, int actionId, KeyEvent event) {
+                    if (actionId != EditorInfo.IME_ACTION_DONE || engine.isQuestionAnswered())
+                        return false;
+
+                    int flagId = nameIndex.findExact(textView.getText());
+                    if (flagId < 0 && suggestionCount == 1)
+                        flagId = suggestionFlagIds[0];
+                    if (flagId >= 0) {
+                        long start = QuizMetrics.start();
+                        showGuessResult(engine.guessFlag(flagId), null);
+                        QuizMetrics.end(QuizMetrics.GUESS, start);
+                    }
+                    return true;
+                }
+            };
 }
@@ -0,0 +1,49 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizHistory;
+
+/**
+ * QuizHistoryLoader opens the QuizHistory once per process, in the app's private files, and
+ * hands out the same instance to every caller.
+ */
+public final class QuizHistoryLoader {
+    // String used when logging error messages
+    private static final String TAG = "FlagQuiz History";
+
+    // Folder in the app's files directory that holds the history.
+    private static final String HISTORY_DIRECTORY = "history";
+
+    private static QuizHistory history; // The process-wide history, or null if there is none.
+    private static boolean opened; // Whether opening the history has been tried.
+
+    private QuizHistoryLoader() {
+    }
+
+    /**
+     * Returns the quiz history, opening it the first time. Opening reads files, so the first
+     * call should be made off the main thread (QuizLoader does this).
+     * @param context any context of the app
+     * @return the quiz history, or null if it couldn't be opened
+     */
+    public static synchronized QuizHistory get(Context context) {
+        if (!opened) {
+            opened = true;
+            Context appContext = context.getApplicationContext();
+            try {
+                history = QuizHistory.open(
+                        new File(appContext.getFilesDir(), HISTORY_DIRECTORY),
+                        FlagCatalogLoader.get(appContext));
+            }
+            catch (IOException e) {
+                Log.e(TAG, "Error opening the quiz history, guesses won't be recorded", e);
+            }
+        }
+        return history;
+    }
+}
@@ -0,0 +1,114 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagNeighbors;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizEngine;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizHistory;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * QuizLoader does the startup work of the quiz on a background thread: it sets the default
+ * preferences, reads the preferences, the flag catalog, the look-alike table, the name index
+ * of typed answers and the quiz history (see QuizHistoryLoader), and builds the first quiz
+ * from them, or restores the quiz saved before the activity was recreated. The quiz screen
+ * shows a placeholder until the loaded quiz is delivered on the main thread, so none of this
+ * delays the first frame.
+ */
+public class QuizLoader {
+    /**
+     * Receives the loaded quiz on the main thread.
+     */
+    public interface Listener {
+        /**
+         * @param preferences the app's preferences, with the defaults set
+         * @param catalog the flag catalog
+         * @param engine an engine configured from the preferences and reset for the first quiz,
+         *               or holding the restored quiz
+         * @param restored whether the engine holds the restored quiz, which is at its current
+         *                 question rather than before its first
+         */
+        void onQuizLoaded(SharedPreferences preferences, FlagCatalog catalog, QuizEngine engine,
+                          boolean restored);
+    }
+
+    private final Context context; // Used to read the preferences and assets.
+    private final Handler mainHandler; // Delivers the loaded quiz to the main thread.
+    private volatile boolean cancelled; // Whether the listener should no longer be called.
+
+    /**
+     * @param context any context of the app
+     */
+    public QuizLoader(Context context) {
+        this.context = context.getApplicationContext();
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Starts loading in the background.
+     * @param savedState the quiz to restore (from QuizEngine.saveState), or null to start a
+     *                   new quiz
+     * @param listener the listener to receive the loaded quiz on the main thread
+     */
+    public void start(final byte[] savedState, final Listener listener) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                load(savedState, listener);
+            }
+        }, "FlagQuiz loader").start();
+    }
+
+    /**
+     * Stops the listener from being called, e.g. when the activity is destroyed first.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Runs on the loader thread.
+    private void load(byte[] savedState, final Listener listener) {
+        // Set default values in the app's SharedPreferences, then read them.
+        PreferenceManager.setDefaultValues(context, R.xml.preferrences, false);
+        final SharedPreferences preferences =
+                PreferenceManager.getDefaultSharedPreferences(context);
+        int choiceCount = QuizActivity.getChoiceCount(preferences);
+        StartupTrace.mark("preferences");
+
+        final FlagCatalog catalog = FlagCatalogLoader.get(context);
+        FlagNeighbors neighbors = FlagCatalogLoader.getNeighbors(context);
+        if (preferences.getBoolean(QuizActivity.TYPED_ANSWERS, false))
+            FlagCatalogLoader.getNameIndex(context); // Built here rather than on the main thread.
+        StartupTrace.mark("catalog");
+
+        QuizHistory history = QuizHistoryLoader.get(context);
+        StartupTrace.mark("history");
+
+        // Build the first quiz the same way QuizActivityFragment does on preference changes.
+        final QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom());
+        engine.setChoiceCount(choiceCount);
+        engine.setRegions(preferences.getStringSet(QuizActivity.REGIONS, null));
+        engine.setAdaptive(preferences.getBoolean(QuizActivity.ADAPTIVE, false));
+        engine.setNeighbors(neighbors);
+        engine.setHardMode(preferences.getBoolean(QuizActivity.HARD_MODE, false));
+        if (history != null)
+            engine.applyHistory(history); // Seeds the flag levels of adaptive quizzes.
+        final boolean restored = savedState != null && engine.restoreState(savedState);
+        if (!restored)
+            engine.reset();
+        StartupTrace.mark("quiz");
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!cancelled)
+                    listener.onQuizLoaded(preferences, catalog, engine, restored);
+            }
+        });
+    }
+}
@@ -0,0 +1,200 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.content.Context;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.LatencyHistogram;
+
+/**
+ * QuizMetrics records how long the quiz's hot paths take, as LatencyHistograms in
+ * microseconds, and counts the frames dropped and the layout passes run while each question
+ * is shown. The numbers can be viewed in the MetricsDialogFragment (debug builds only) and
+ * exported to a file.
+ *
+ * Metrics are recorded only in debug builds. In release builds ENABLED is false, so
+ * start() and end() return at once and no histograms are created.
+ *
+ * Usage: long start = QuizMetrics.start(); ...; QuizMetrics.end(QuizMetrics.GUESS, start);
+ */
+public final class QuizMetrics {
+    // Whether metrics are recorded.
+    public static final boolean ENABLED = BuildConfig.DEBUG;
+
+    // The measured operations.
+    public static final int RESET_QUIZ = 0; // resetQuiz(), including the first flag.
+    public static final int LOAD_NEXT_FLAG = 1; // loadNextFlag() on the main thread.
+    public static final int BIND_BUTTONS = 2; // Setting the answer choices on the buttons.
+    public static final int FLAG_OPEN = 3; // Opening or copying a flag's PNG data.
+    public static final int FLAG_DECODE = 4; // Decoding a flag in the background.
+    public static final int FLAG_SHOWN = 5; // From loadNextFlag() to the flag being displayed.
+    public static final int GUESS = 6; // Handling a click on a guess button.
+    public static final int DROPPED_FRAMES = 7; // Frames dropped per question (a count).
+    public static final int LAYOUT_PASSES = 8; // Layout passes per question (a count).
+    public static final int SUGGEST = 9; // Matching and showing the suggestions of a keystroke.
+
+    private static final String[] NAMES = {"resetQuiz", "loadNextFlag", "bindButtons",
+            "flagOpen", "flagDecode", "flagShown", "guess", "droppedFrames", "layoutPasses",
+            "suggest"};
+
+    // Created only if ENABLED.
+    private static final LatencyHistogram[] histograms = ENABLED ?
+            new LatencyHistogram[NAMES.length] : null;
+
+    static {
+        if (ENABLED) {
+            for (int metric = 0; metric < NAMES.length; metric++)
+                histograms[metric] = new LatencyHistogram();
+        }
+    }
+
+    private static QuestionWatcher questionWatcher; // Counts frames; main thread only.
+
+    private QuizMetrics() {
+    }
+
+    /**
+     * @return the start time to pass to end(), or 0 if metrics are disabled
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time since start() for an operation. May be called on any thread.
+     * @param metric the operation, e.g. QuizMetrics.GUESS
+     * @param startNanos the value returned by start()
+     */
+    public static void end(int metric, long startNanos) {
+        if (ENABLED)
+            histograms[metric].record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Starts counting dropped frames and layout passes for a new question, recording the
+     * counts of the previous question if it is still being watched. Must be called on the
+     * main thread.
+     * @param view any view of the quiz, used to find the display's refresh rate and to watch
+     *             the layout passes of its window
+     */
+    public static void beginQuestion(View view) {
+        if (!ENABLED)
+            return;
+
+        endQuestion();
+        Display display = view.getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 60;
+        questionWatcher = new QuestionWatcher((long) (1e9 / refreshRate), view);
+        Choreographer.getInstance().postFrameCallback(questionWatcher);
+        view.getViewTreeObserver().addOnGlobalLayoutListener(questionWatcher);
+    }
+
+    /**
+     * Stops counting dropped frames and layout passes and records the counts of the current
+     * question. Must be called on the main thread.
+     */
+    public static void endQuestion() {
+        if (!ENABLED || questionWatcher == null)
+            return;
+
+        Choreographer.getInstance().removeFrameCallback(questionWatcher);
+        questionWatcher.view.getViewTreeObserver()
+                .removeOnGlobalLayoutListener(questionWatcher);
+        histograms[DROPPED_FRAMES].record(questionWatcher.droppedFrames);
+        histograms[LAYOUT_PASSES].record(questionWatcher.layoutPasses);
+        questionWatcher = null;
+    }
+
+    /**
+     * Discards every recorded value.
+     */
+    public static void reset() {
+        if (!ENABLED)
+            return;
+        for (LatencyHistogram histogram : histograms)
+            histogram.reset();
+    }
+
+    /**
+     * @return one line per metric with its count and percentiles, or an empty string if
+     *         metrics are disabled
+     */
+    public static String summarize() {
+        StringBuilder summary = new StringBuilder();
+        if (!ENABLED)
+            return summary.toString();
+
+        summary.append("metric\tcount\tp50\tp90\tp99\tmax (us; a count for droppedFrames " +
+                "and layoutPasses)\n");
+        for (int metric = 0; metric < NAMES.length; metric++) {
+            LatencyHistogram histogram = histograms[metric];
+            summary.append(NAMES[metric]).append('\t')
+                    .append(histogram.getCount()).append('\t')
+                    .append(histogram.getValueAtPercentile(50)).append('\t')
+                    .append(histogram.getValueAtPercentile(90)).append('\t')
+                    .append(histogram.getValueAtPercentile(99)).append('\t')
+                    .append(histogram.getMax()).append('\n');
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Writes the summary to a new file in the app's external files directory, which can be
+     * pulled with adb without any permission.
+     * @param context any context of the app
+     * @return the file written
+     * @throws IOException if the file couldn't be written
+     */
+    public static File export(Context context) throws IOException {
+        File directory = context.getExternalFilesDir(null);
+        if (directory == null)
+            directory = context.getFilesDir(); // External storage isn't available.
+
+        File file = new File(directory, "metrics-" + System.currentTimeMillis() + ".tsv");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(summarize());
+        }
+        return file;
+    }
+
+    /**
+     * Counts the frames missed between consecutive vsync callbacks, and the layout passes of
+     * the quiz's window, while a question is shown.
+     */
+    private static class QuestionWatcher implements Choreographer.FrameCallback,
+            ViewTreeObserver.OnGlobalLayoutListener {
+        private final long framePeriodNanos; // Time between frames at the refresh rate.
+        private final View view; // The view whose window's layout passes are counted.
+        private long lastFrameNanos; // Time of the previous frame, or 0 before the first.
+        private int droppedFrames; // Frames missed since the question was shown.
+        private int layoutPasses; // Layout passes since the question was shown.
+
+        QuestionWatcher(long framePeriodNanos, View view) {
+            this.framePeriodNanos = framePeriodNanos;
+            this.view = view;
+        }
+
+        @Override
+        public void onGlobalLayout() {
+            ++layoutPasses;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (lastFrameNanos != 0) {
+                // Each whole frame period beyond the first (rounded) is a missed frame.
+                long interval = frameTimeNanos - lastFrameNanos;
+                droppedFrames += (int) ((interval + framePeriodNanos / 2) / framePeriodNanos) - 1;
+            }
+            lastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * StartupTrace measures the time from QuizActivity.onCreate to the first flag being drawn
+ * and logs it once per launch with the app version, e.g.
+ *
+ *   Cold start of 1.0 (1): 412 ms to first flag [preferences 38 ms, catalog 61 ms, ...]
+ *
+ * so startup can be compared across releases with "adb logcat -s 'FlagQuiz Startup'".
+ * The stages are marked by whichever thread completes them.
+ */
+public final class StartupTrace {
+    // String used when logging messages
+    private static final String TAG = "FlagQuiz Startup";
+
+    private static long startTime; // When the running trace began, or 0 if none is running.
+    private static long lastMarkTime; // When the previous stage completed.
+    private static boolean coldStart = true; // Whether no start has been reported yet.
+    private static final StringBuilder stages = new StringBuilder(); // Completed stages.
+
+    private StartupTrace() {
+    }
+
+    /**
+     * Starts the trace; called first thing in QuizActivity.onCreate.
+     */
+    public static synchronized void begin() {
+        startTime = SystemClock.elapsedRealtime();
+        lastMarkTime = startTime;
+        stages.setLength(0);
+    }
+
+    /**
+     * Records that a stage of the startup has completed.
+     * @param stage the name of the stage, e.g. "catalog"
+     */
+    public static synchronized void mark(String stage) {
+        if (startTime == 0)
+            return; // No trace running.
+
+        long now = SystemClock.elapsedRealtime();
+        stages.append(stages.length() == 0 ? "" : ", ")
+                .append(stage).append(' ').append(now - lastMarkTime).append(" ms");
+        lastMarkTime = now;
+    }
+
+    /**
+     * Ends the trace when the view next draws, normally the flag view right after the first
+     * flag has been set. Does nothing if the trace has already ended.
+     * @param view the view whose next frame completes the startup
+     */
+    public static synchronized void endOnDraw(final View view) {
+        if (startTime == 0)
+            return;
+
+        view.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        view.getViewTreeObserver().removeOnPreDrawListener(this);
+                        end();
+                        return true;
+                    }
+                });
+    }
+
+    private static synchronized void end() {
+        if (startTime == 0)
+            return;
+
+        mark("first flag");
+        Log.i(TAG, (coldStart ? "Cold" : "Warm") + " start of " + BuildConfig.VERSION_NAME +
+                " (" + BuildConfig.VERSION_CODE + "): " + (lastMarkTime - startTime) +
+                " ms to first flag [" + stages + "]");
+        startTime = 0;
+        coldStart = false;
+    }
+}
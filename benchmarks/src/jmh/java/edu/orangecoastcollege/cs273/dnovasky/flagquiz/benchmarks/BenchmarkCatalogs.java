@@ -0,0 +1,25 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+
+/**
+ * Helps the benchmarks compare FlagCatalog.synthetic catalogs with the old list-based code.
+ */
+final class BenchmarkCatalogs {
+    private BenchmarkCatalogs() {
+    }
+
+    /**
+     * @param catalog the catalog
+     * @return every file name of the catalog, as the old fileNameList held them
+     */
+    static List<String> fileNames(FlagCatalog catalog) {
+        List<String> fileNames = new ArrayList<>(catalog.getFlagCount());
+        for (int id = 0; id < catalog.getFlagCount(); id++)
+            fileNames.add(catalog.getFileName(id));
+        return fileNames;
+    }
+}
@@ -0,0 +1,41 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+
+/**
+ * Getting a button label: the old getCountryName() parse against the catalog's name table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CountryNameBenchmark {
+    private FlagCatalog catalog;
+    private int id; // Cycles through the catalog so every name is used.
+
+    @Setup
+    public void setUp() {
+        catalog = FlagCatalog.synthetic(223);
+    }
+
+    @Benchmark
+    public String legacyGetCountryName() {
+        id = (id + 1) % catalog.getFlagCount();
+        return LegacyQuiz.getCountryName(catalog.getFileName(id));
+    }
+
+    @Benchmark
+    public String catalogGetName() {
+        id = (id + 1) % catalog.getFlagCount();
+        return catalog.getName(id);
+    }
+}
@@ -0,0 +1,67 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * LegacyQuiz repeats the quiz algorithms QuizActivityFragment used before the quiz engine so
+ * the benchmarks can compare them with their replacements. Each method follows the original
+ * resetQuiz(), loadNextFlag() and getCountryName() with the Android views left out.
+ */
+final class LegacyQuiz {
+    private LegacyQuiz() {
+    }
+
+    /**
+     * The flag sampling of the original resetQuiz(): random draws, rejecting flags that
+     * quizCountriesList already contains.
+     */
+    static void resetQuiz(List<String> fileNameList, List<String> quizCountriesList,
+                          int flagsInQuiz, Random random) {
+        quizCountriesList.clear();
+
+        int flagCounter = 1;
+        int numberOfFlags = fileNameList.size();
+
+        while (flagCounter <= flagsInQuiz) {
+            int randomIndex = random.nextInt(numberOfFlags);
+            String filename = fileNameList.get(randomIndex);
+
+            if (!quizCountriesList.contains(filename)) {
+                quizCountriesList.add(filename);
+                ++flagCounter;
+            }
+        }
+    }
+
+    /**
+     * The answer choices of the original loadNextFlag(): shuffle every file name, move the
+     * correct answer to the end, label the buttons and overwrite a random one with the answer.
+     */
+    static void loadChoices(List<String> fileNameList, String correctAnswer,
+                            String[] buttonTexts, int guessRows, Random random) {
+        Collections.shuffle(fileNameList, random);
+
+        int correct = fileNameList.indexOf(correctAnswer);
+        fileNameList.add(fileNameList.remove(correct));
+
+        for (int row = 0; row < guessRows; row++)
+            for (int column = 0; column < 2; column++)
+                buttonTexts[(row * 2) + column] =
+                        getCountryName(fileNameList.get((row * 2) + column));
+
+        int row = random.nextInt(guessRows);
+        int column = random.nextInt(2);
+        buttonTexts[(row * 2) + column] = getCountryName(correctAnswer);
+    }
+
+    /**
+     * The original getCountryName(), with its regular expression replace.
+     */
+    static String getCountryName(String fileName) {
+        return (fileName.substring
+                (fileName.indexOf('-') + 1, fileName.length()))
+                .replaceAll("_", " ");
+    }
+}
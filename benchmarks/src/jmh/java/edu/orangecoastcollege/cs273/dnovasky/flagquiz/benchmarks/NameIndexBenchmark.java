@@ -0,0 +1,73 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.CountryNameIndex;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+
+/**
+ * One keystroke of a typed answer: CountryNameIndex's binary search over its sorted keys
+ * against normalizing the text and scanning every name, as a plain filter would. The index
+ * should cost about the same for 50000 names as for 223 and allocate nothing (see
+ * gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NameIndexBenchmark {
+    @Param({"223", "10000", "50000"})
+    public int flagCount;
+
+    private CountryNameIndex index;
+    private List<String> names; // Normalized name of each flag id, for the scan.
+    private StringBuilder typed; // The text in the answer field.
+    private String answer; // The name being typed, one character per keystroke.
+    private int[] suggestions;
+
+    @Setup
+    public void setUp() {
+        FlagCatalog catalog = FlagCatalog.synthetic(flagCount);
+        index = CountryNameIndex.build(catalog, null);
+        names = new ArrayList<>(flagCount);
+        for (int id = 0; id < flagCount; id++)
+            names.add(CountryNameIndex.normalize(catalog.getName(id)));
+        answer = catalog.getName(flagCount / 2);
+        typed = new StringBuilder(answer.length());
+        suggestions = new int[4];
+    }
+
+    // Types the next character of the answer, starting over once it is complete.
+    private void typeKey() {
+        if (typed.length() == answer.length())
+            typed.setLength(0);
+        typed.append(answer.charAt(typed.length()));
+    }
+
+    @Benchmark
+    public int indexMatch() {
+        typeKey();
+        return index.match(typed, suggestions);
+    }
+
+    @Benchmark
+    public int scanNames() {
+        typeKey();
+        String prefix = CountryNameIndex.normalize(typed);
+        int matches = 0;
+        for (int id = 0; id < names.size() && matches < suggestions.length; id++)
+            if (names.get(id).startsWith(prefix))
+                suggestions[matches++] = id;
+        return matches;
+    }
+}
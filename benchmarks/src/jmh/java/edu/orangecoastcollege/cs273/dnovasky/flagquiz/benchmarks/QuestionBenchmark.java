@@ -0,0 +1,70 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizEngine;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * Building one question's answer choices and their button labels: the old shuffle of every
+ * file name against QuizEngine.nextQuestion() with the catalog's name table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuestionBenchmark {
+    @Param({"16", "223", "10000"})
+    public int poolSize;
+
+    @Param({"2", "4", "6", "8"})
+    public int choices;
+
+    private FlagCatalog catalog;
+    private List<String> fileNameList;
+    private String[] buttonTexts;
+    private Random random;
+    private QuizEngine engine;
+
+    @Setup
+    public void setUp() {
+        catalog = FlagCatalog.synthetic(poolSize);
+        fileNameList = BenchmarkCatalogs.fileNames(catalog);
+        buttonTexts = new String[choices];
+        random = new XoroshiroRandom(273);
+
+        // Ask every flag of the pool in one quiz so resets don't add to the measurement.
+        engine = new QuizEngine(catalog, new XoroshiroRandom(273));
+        engine.setQuizLength(poolSize);
+        engine.setChoiceCount(choices);
+        engine.reset();
+    }
+
+    @Benchmark
+    public void legacyLoadNextFlag(Blackhole blackhole) {
+        String correctAnswer = fileNameList.get(random.nextInt(fileNameList.size()));
+        LegacyQuiz.loadChoices(fileNameList, correctAnswer, buttonTexts, choices / 2, random);
+        blackhole.consume(buttonTexts);
+    }
+
+    @Benchmark
+    public void engineNextQuestion(Blackhole blackhole) {
+        if (!engine.hasNextQuestion())
+            engine.reset();
+        engine.nextQuestion();
+        for (int choice = 0; choice < choices; choice++)
+            blackhole.consume(catalog.getName(engine.getChoiceFlagId(choice)));
+    }
+}
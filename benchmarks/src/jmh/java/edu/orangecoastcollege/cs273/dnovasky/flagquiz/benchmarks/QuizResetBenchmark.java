@@ -0,0 +1,57 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizEngine;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * Drawing the flags of a quiz: the old rejection loop against QuizEngine.reset().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuizResetBenchmark {
+    @Param({"16", "223", "10000"})
+    public int poolSize;
+
+    private List<String> fileNameList;
+    private List<String> quizCountriesList;
+    private Random random;
+    private QuizEngine engine;
+
+    @Setup
+    public void setUp() {
+        FlagCatalog catalog = FlagCatalog.synthetic(poolSize);
+        fileNameList = BenchmarkCatalogs.fileNames(catalog);
+        quizCountriesList = new ArrayList<>();
+        random = new XoroshiroRandom(273);
+        engine = new QuizEngine(catalog, new XoroshiroRandom(273));
+    }
+
+    @Benchmark
+    public List<String> legacyResetQuiz() {
+        LegacyQuiz.resetQuiz(fileNameList, quizCountriesList,
+                QuizEngine.DEFAULT_QUIZ_LENGTH, random);
+        return quizCountriesList;
+    }
+
+    @Benchmark
+    public int engineReset() {
+        engine.reset();
+        return engine.getUpcomingFlagId(1);
+    }
+}
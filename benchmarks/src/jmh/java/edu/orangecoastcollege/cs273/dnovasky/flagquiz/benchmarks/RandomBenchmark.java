@@ -0,0 +1,42 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * One random draw over all flags: the old SecureRandom against XoroshiroRandom.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RandomBenchmark {
+    private Random secureRandom;
+    private Random xoroshiroRandom;
+
+    @Setup
+    public void setUp() {
+        secureRandom = new SecureRandom();
+        xoroshiroRandom = new XoroshiroRandom(273);
+    }
+
+    @Benchmark
+    public int legacySecureRandom() {
+        return secureRandom.nextInt(223);
+    }
+
+    @Benchmark
+    public int xoroshiroRandom() {
+        return xoroshiroRandom.nextInt(223);
+    }
+}
@@ -0,0 +1,56 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagScheduler;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * Weighted draws and weight updates with FlagScheduler, which should cost the same for the
+ * 223 flags of the app as for catalogs thousands of times larger.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchedulerBenchmark {
+    @Param({"223", "10000", "1000000"})
+    public int flagCount;
+
+    private FlagScheduler scheduler;
+    private XoroshiroRandom random;
+    private int[] quiz;
+
+    @Setup
+    public void setUp() {
+        random = new XoroshiroRandom(273);
+        scheduler = new FlagScheduler(flagCount);
+        for (int id = 0; id < flagCount; id++)
+            scheduler.setWeight(id, 1 << random.nextInt(5));
+        quiz = new int[10];
+    }
+
+    @Benchmark
+    public int next() {
+        return scheduler.next(random);
+    }
+
+    @Benchmark
+    public int[] sampleQuiz() {
+        scheduler.sample(quiz.length, random, quiz);
+        return quiz;
+    }
+
+    @Benchmark
+    public void setWeight() {
+        scheduler.setWeight(random.nextInt(flagCount), 1 << random.nextInt(5));
+    }
+}
@@ -0,0 +1,190 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ClassroomClient plays one player's session of a ClassroomHost quiz, blocking for the
+ * host's reply to each request. It stands in for the app's players in tests and load tests
+ * (see LoopbackPlayers). A client is used by one thread.
+ */
+public class ClassroomClient implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private int playerId = -1; // Id the host gave the player; -1 until joined.
+    private int flagCount; // Number of flags in the host's catalog.
+    private int flagsInQuiz; // Number of flags in the quiz.
+    private int[] choiceFlagIds; // Flag ids of the current question's answer choices.
+    private int questionNumber; // Number of the current question.
+    private int flagId; // Flag id of the current question.
+    private int points; // Points so far.
+    private int totalGuesses; // Total guesses, once finished.
+    private boolean finished; // Whether every flag of the quiz has been identified.
+
+    /**
+     * Connects to a host.
+     * @param address the host's address and port
+     * @param timeoutMillis how long to wait for the connection and for each reply
+     * @throws IOException if the host can't be reached
+     */
+    public ClassroomClient(InetSocketAddress address, int timeoutMillis) throws IOException {
+        socket = new Socket();
+        socket.connect(address, timeoutMillis);
+        socket.setSoTimeout(timeoutMillis);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Joins the quiz and receives its first question.
+     * @param name the player's name
+     * @throws IOException if the host doesn't reply as expected
+     */
+    public void join(String name) throws IOException {
+        out.writeByte(ClassroomProtocol.JOIN);
+        out.writeUTF(name);
+        out.flush();
+
+        expect(ClassroomProtocol.WELCOME);
+        playerId = in.readInt();
+        flagCount = in.readInt();
+        choiceFlagIds = new int[in.readInt()];
+        flagsInQuiz = in.readInt();
+        readQuestion();
+    }
+
+    /**
+     * Guesses an answer choice of the current question and receives the result, and if it is
+     * correct, the next question or the end of the quiz.
+     * @param choice the answer choice
+     * @return true if the guess is correct
+     * @throws IOException if the host doesn't reply as expected
+     */
+    public boolean answer(int choice) throws IOException {
+        if (finished)
+            throw new IllegalStateException("The quiz is finished");
+        out.writeByte(ClassroomProtocol.ANSWER);
+        out.writeInt(questionNumber);
+        out.writeInt(choice);
+        out.flush();
+
+        expect(ClassroomProtocol.RESULT);
+        if (in.readInt() != questionNumber)
+            throw new IOException("Result of another question");
+        boolean correct = in.readBoolean();
+        points = in.readInt();
+        if (correct) {
+            byte type = in.readByte();
+            if (type == ClassroomProtocol.QUESTION)
+                readQuestionFields();
+            else if (type == ClassroomProtocol.FINISHED) {
+                points = in.readInt();
+                totalGuesses = in.readInt();
+                finished = true;
+            }
+            else
+                throw new IOException("Unexpected frame " + type);
+        }
+        return correct;
+    }
+
+    /**
+     * @return the host's leaderboard, best first
+     * @throws IOException if the host doesn't reply as expected
+     */
+    public List<Standing> requestLeaderboard() throws IOException {
+        out.writeByte(ClassroomProtocol.LEADERBOARD);
+        out.flush();
+
+        expect(ClassroomProtocol.STANDINGS);
+        int count = in.readInt();
+        List<Standing> standings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            standings.add(new Standing(in.readUTF(), in.readInt(), in.readInt(), 0));
+        return standings;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    public int getFlagsInQuiz() {
+        return flagsInQuiz;
+    }
+
+    public int getChoiceCount() {
+        return choiceFlagIds.length;
+    }
+
+    public int getQuestionNumber() {
+        return questionNumber;
+    }
+
+    /**
+     * @return the flag id of the current question, whose flag the player is shown
+     */
+    public int getFlagId() {
+        return flagId;
+    }
+
+    /**
+     * @param choice the position of an answer choice
+     * @return the flag id of the answer choice
+     */
+    public int getChoiceFlagId(int choice) {
+        return choiceFlagIds[choice];
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * @return the number of guesses of the whole quiz, once it is finished
+     */
+    public int getTotalGuesses() {
+        return totalGuesses;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void expect(byte type) throws IOException {
+        byte read = in.readByte();
+        if (read != type)
+            throw new IOException("Expected frame " + type + ", got " + read);
+    }
+
+    private void readQuestion() throws IOException {
+        expect(ClassroomProtocol.QUESTION);
+        readQuestionFields();
+    }
+
+    private void readQuestionFields() throws IOException {
+        questionNumber = in.readInt();
+        flagId = in.readInt();
+        for (int choice = 0; choice < choiceFlagIds.length; choice++)
+            choiceFlagIds[choice] = in.readInt();
+    }
+}
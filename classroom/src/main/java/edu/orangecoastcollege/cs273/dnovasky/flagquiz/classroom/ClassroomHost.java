@@ -0,0 +1,655 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizEngine;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * ClassroomHost runs a classroom quiz: every player who connects (see ClassroomProtocol and
+ * ClassroomClient) gets a quiz session of their own, and every session asks the same flags
+ * with the same answer choices, drawn from the quiz's seed. Each session has its own
+ * QuizEngine, and every engine shares the host's one FlagCatalog.
+ *
+ * Players are spread over shards by player id. A shard is a thread with an inbox: each
+ * player's reader thread only parses frames and queues them to the player's shard, and only
+ * the shard touches the player's session and writes to the player's socket. So session state
+ * needs no lock at all, and no lock is shared between shards. A shard drains its inbox in
+ * batches of up to MAX_BATCH submissions and flushes each player's socket once per batch, so
+ * a burst of answers costs one wake-up and one write per player rather than one per answer.
+ * A player may have at most MAX_PENDING submissions queued; one who sends frames faster than
+ * the shard handles them is disconnected, so no player can grow a shard's inbox without bound.
+ *
+ * Each shard keeps the top standings of its own players (see TopScores) and publishes an
+ * immutable copy when they change. getLeaderboard() merges the shards' copies, at most
+ * shards * leaderboard size standings, and caches the result until a shard publishes again,
+ * so the leaderboard costs the same for 10 players as for 10000.
+ */
+public class ClassroomHost implements Closeable {
+    // Reports errors; java.util.logging goes to logcat inside the app and to stderr otherwise.
+    private static final Logger LOG = Logger.getLogger(ClassroomHost.class.getName());
+
+    // Submissions a shard handles before flushing its players' sockets.
+    static final int MAX_BATCH = 256;
+
+    // Submissions a player may have queued to the shard before being disconnected. A player
+    // waits for the reply to each frame, so an honest one never has more than a couple.
+    static final int MAX_PENDING = 64;
+
+    // Kinds of submission queued to a shard; the player frames plus a player leaving.
+    private static final int JOINED = 0;
+    private static final int ANSWERED = 1;
+    private static final int LEADERBOARD_ASKED = 2;
+    private static final int LEFT = 3;
+
+    private final FlagCatalog catalog; // The flags of every session.
+    private final Shard[] shards; // The threads that own the sessions.
+    private int choiceCount = QuizEngine.DEFAULT_CHOICE_COUNT; // Answer choices per question.
+    private int quizLength = QuizEngine.DEFAULT_QUIZ_LENGTH; // Flags per quiz.
+    private int leaderboardSize = 10; // Standings in the leaderboard.
+    private long seed = 273; // Seed of the quiz every session plays.
+
+    private ServerSocket serverSocket; // Accepts players; null until started.
+    private volatile boolean closed; // Whether close() has been called.
+    private final AtomicInteger nextPlayerId = new AtomicInteger(); // Id of the next player.
+    private final Set<Player> players = // Connected players, to close them with the host.
+            Collections.newSetFromMap(new ConcurrentHashMap<Player, Boolean>());
+
+    private final AtomicLong boardVersion = new AtomicLong(); // Bumped when a shard publishes.
+    private volatile Leaderboard leaderboard = // The last merged leaderboard.
+            new Leaderboard(0, Collections.<Standing>emptyList());
+
+    /**
+     * @param catalog the flags to draw the quiz from; every region is enabled
+     * @param shardCount the number of threads that run the sessions
+     */
+    public ClassroomHost(FlagCatalog catalog, int shardCount) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("A host needs at least one shard");
+        this.catalog = catalog;
+        shards = new Shard[shardCount];
+    }
+
+    /**
+     * @param choiceCount the number of answer choices per question, at least 2
+     */
+    public synchronized void setChoiceCount(int choiceCount) {
+        checkNotStarted();
+        if (choiceCount < 2)
+            throw new IllegalArgumentException("A question needs at least two choices");
+        this.choiceCount = choiceCount;
+    }
+
+    /**
+     * @param quizLength the number of flags per quiz, at least 1
+     */
+    public synchronized void setQuizLength(int quizLength) {
+        checkNotStarted();
+        if (quizLength < 1)
+            throw new IllegalArgumentException("A quiz needs at least one flag");
+        this.quizLength = quizLength;
+    }
+
+    /**
+     * @param leaderboardSize the number of standings in the leaderboard, at least 1
+     */
+    public synchronized void setLeaderboardSize(int leaderboardSize) {
+        checkNotStarted();
+        if (leaderboardSize < 1)
+            throw new IllegalArgumentException("A leaderboard needs at least one standing");
+        this.leaderboardSize = leaderboardSize;
+    }
+
+    /**
+     * @param seed the seed of the quiz; players of hosts with the same seed and settings
+     *             play the same quiz
+     */
+    public synchronized void setSeed(long seed) {
+        checkNotStarted();
+        this.seed = seed;
+    }
+
+    // The shards read the settings without a lock, so they are fixed once the host starts.
+    private void checkNotStarted() {
+        if (serverSocket != null)
+            throw new IllegalStateException("The host is already started");
+    }
+
+    /**
+     * Starts accepting players. The settings can't be changed after this.
+     * @param port the port to listen on, or 0 for any free port
+     * @param bindAddress the address to listen on, e.g. the loopback address, or null for
+     *                    every address of the device
+     * @throws IOException if the port can't be opened
+     */
+    public synchronized void start(int port, InetAddress bindAddress) throws IOException {
+        checkNotStarted();
+        if (choiceCount > catalog.getFlagCount())
+            throw new IllegalStateException(choiceCount + " choices need at least as many flags");
+
+        serverSocket = new ServerSocket(port, 1024, bindAddress); // Room for a class joining.
+        for (int shard = 0; shard < shards.length; shard++) {
+            shards[shard] = new Shard();
+            shards[shard].thread = startThread(shards[shard], "Classroom shard " + shard);
+        }
+        startThread(new Runnable() {
+            @Override
+            public void run() {
+                acceptPlayers();
+            }
+        }, "Classroom host");
+    }
+
+    /**
+     * @return the port the host listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of players who have joined, including those who left
+     */
+    public int getPlayerCount() {
+        return nextPlayerId.get();
+    }
+
+    /**
+     * @return the number of batches the shards have handled, to compare with the number of
+     *         submissions
+     */
+    public long getBatchCount() {
+        long batches = 0;
+        for (Shard shard : shards)
+            if (shard != null)
+                batches += shard.batches;
+        return batches;
+    }
+
+    /**
+     * @return the number of submissions (joins, answers and leaderboard requests) the shards
+     *         have handled
+     */
+    public long getSubmissionCount() {
+        long submissions = 0;
+        for (Shard shard : shards)
+            if (shard != null)
+                submissions += shard.submissions;
+        return submissions;
+    }
+
+    /**
+     * Returns the best players, including players who have left. Safe to call from any
+     * thread; it only merges the shards' top standings when one of them has changed.
+     * @return up to the leaderboard size of standings, best first
+     */
+    public List<Standing> getLeaderboard() {
+        Leaderboard cached = leaderboard;
+        long version = boardVersion.get();
+        if (cached.version == version)
+            return cached.standings;
+
+        List<Standing> merged = new ArrayList<>();
+        for (Shard shard : shards)
+            merged.addAll(Arrays.asList(shard.standings));
+        Collections.sort(merged, Standing.RANKING);
+        List<Standing> standings = Collections.unmodifiableList(
+                new ArrayList<>(merged.subList(0, Math.min(leaderboardSize, merged.size()))));
+        leaderboard = new Leaderboard(version, standings);
+        return standings;
+    }
+
+    /**
+     * Stops accepting players, disconnects every player and stops the shards.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        closeQuietly(serverSocket);
+        for (Player player : players)
+            closeQuietly(player.socket);
+        for (Shard shard : shards)
+            if (shard != null)
+                shard.thread.interrupt();
+    }
+
+    private void acceptPlayers() {
+        while (!closed) {
+            Socket socket = null;
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true); // The shards batch the writes themselves.
+                Player player = new Player(socket);
+                players.add(player);
+                if (closed)
+                    closeQuietly(socket); // Closed while accepting.
+                else
+                    startThread(player, "Classroom player");
+            }
+            catch (IOException e) {
+                closeQuietly(socket); // Accepted, but the player couldn't be set up.
+                if (!closed)
+                    LOG.log(Level.WARNING, "Error accepting a player", e);
+            }
+        }
+    }
+
+    private static Thread startThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        }
+        catch (IOException e) {
+            // Nothing left to do with it.
+        }
+    }
+
+    /**
+     * A connected player. The reader thread reads the player's frames and queues them to
+     * the player's shard; the session fields and the output are only used by the shard.
+     */
+    private final class Player implements Runnable {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        int id; // Set when the player joins, before the first submission.
+        String name;
+        Shard shard;
+        final AtomicInteger pending = new AtomicInteger(); // Submissions the shard has queued.
+
+        // Session state, owned by the shard.
+        QuizEngine engine;
+        int points; // Points of the quiz so far.
+        int wrongGuesses; // Wrong guesses of the current question.
+        boolean unflushed; // Whether the shard has written frames it hasn't flushed.
+        boolean disconnected; // Whether the shard has given up on the socket.
+
+        Player(Socket socket) throws IOException {
+            this.socket = socket;
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (in.readByte() != ClassroomProtocol.JOIN)
+                    throw new IOException("A player must join first");
+                name = in.readUTF();
+                if (name.isEmpty() || name.length() > ClassroomProtocol.MAX_NAME_LENGTH)
+                    throw new IOException("Bad player name");
+                id = nextPlayerId.getAndIncrement();
+                shard = shards[id % shards.length];
+                submit(JOINED, 0, 0);
+
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == ClassroomProtocol.ANSWER)
+                        submit(ANSWERED, in.readInt(), in.readInt());
+                    else if (type == ClassroomProtocol.LEADERBOARD)
+                        submit(LEADERBOARD_ASKED, 0, 0);
+                    else
+                        throw new IOException("Unknown frame " + type);
+                }
+            }
+            catch (IOException e) {
+                // The player left, or sent something the host doesn't understand.
+            }
+            finally {
+                if (shard != null)
+                    shard.submit(new Submission(this, LEFT, 0, 0));
+                else {
+                    closeQuietly(socket);
+                    players.remove(this);
+                }
+            }
+        }
+
+        private void submit(int kind, int questionNumber, int choice) throws IOException {
+            if (pending.incrementAndGet() > MAX_PENDING)
+                throw new IOException("More than " + MAX_PENDING + " frames unanswered");
+            shard.submit(new Submission(this, kind, questionNumber, choice));
+        }
+    }
+
+    /**
+     * A frame of a player, or the player leaving, queued to the player's shard.
+     */
+    private static final class Submission {
+        final Player player;
+        final int kind; // JOINED, ANSWERED, LEADERBOARD_ASKED or LEFT.
+        final int questionNumber; // Question number of an answer.
+        final int choice; // Answer choice of an answer.
+
+        Submission(Player player, int kind, int questionNumber, int choice) {
+            this.player = player;
+            this.kind = kind;
+            this.questionNumber = questionNumber;
+            this.choice = choice;
+        }
+    }
+
+    /**
+     * A thread that owns the sessions of every player with an id of its index modulo the
+     * number of shards.
+     */
+    private final class Shard implements Runnable {
+        final BlockingQueue<Submission> inbox = new LinkedBlockingQueue<>();
+        final TopScores topScores = new TopScores(leaderboardSize);
+        volatile Standing[] standings = new Standing[0]; // Published copy of topScores.
+        volatile long batches; // Batches handled; only written by the shard.
+        volatile long submissions; // Submissions handled; only written by the shard.
+        Thread thread; // The shard's thread, set by start().
+
+        private final List<Submission> batch = new ArrayList<>(MAX_BATCH);
+        private final List<Player> unflushedPlayers = new ArrayList<>();
+
+        void submit(Submission submission) {
+            inbox.add(submission);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    batch.add(inbox.take());
+                    inbox.drainTo(batch, MAX_BATCH - 1);
+
+                    boolean scored = false;
+                    for (Submission submission : batch)
+                        scored |= handle(submission);
+                    if (scored) {
+                        standings = topScores.toArray();
+                        boardVersion.incrementAndGet();
+                    }
+                    flushPlayers();
+
+                    batches = batches + 1;
+                    submissions = submissions + batch.size();
+                    batch.clear();
+                }
+            }
+            catch (InterruptedException e) {
+                // The host is closing.
+            }
+        }
+
+        // Returns true if the player's standing entered or moved up the shard's top scores.
+        private boolean handle(Submission submission) {
+            Player player = submission.player;
+            if (submission.kind == LEFT) {
+                player.disconnected = true;
+                closeQuietly(player.socket);
+                players.remove(player);
+                return false;
+            }
+            player.pending.decrementAndGet();
+            if (player.disconnected)
+                return false;
+
+            boolean scored = false;
+            try {
+                switch (submission.kind) {
+                    case JOINED:
+                        join(player);
+                        break;
+                    case ANSWERED:
+                        scored = answer(player, submission.questionNumber, submission.choice);
+                        break;
+                    case LEADERBOARD_ASKED:
+                        writeStandings(player.out, getLeaderboard());
+                        break;
+                }
+                if (!player.unflushed) {
+                    player.unflushed = true;
+                    unflushedPlayers.add(player);
+                }
+            }
+            catch (IOException e) {
+                disconnect(player);
+            }
+            catch (RuntimeException e) {
+                // A bug in one session must not stop the shard's other sessions.
+                LOG.log(Level.SEVERE, "Error in the session of player " + player.id, e);
+                disconnect(player);
+            }
+            return scored;
+        }
+
+        private void join(Player player) throws IOException {
+            QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(seed));
+            engine.setChoiceCount(choiceCount);
+            engine.setQuizLength(quizLength);
+            engine.reset();
+            engine.nextQuestion();
+            player.engine = engine;
+
+            DataOutputStream out = player.out;
+            out.writeByte(ClassroomProtocol.WELCOME);
+            out.writeInt(player.id);
+            out.writeInt(catalog.getFlagCount());
+            out.writeInt(choiceCount);
+            out.writeInt(engine.getFlagsInQuiz());
+            writeQuestion(player);
+        }
+
+        // Returns true if the answer changed the shard's top scores.
+        private boolean answer(Player player, int questionNumber, int choice)
+                throws IOException {
+            QuizEngine engine = player.engine;
+            if (engine.isQuestionAnswered() || questionNumber != engine.getQuestionNumber() ||
+                    choice < 0 || choice >= choiceCount || engine.isChoiceGuessed(choice))
+                return false; // A late or repeated answer.
+
+            boolean correct = engine.guess(choice);
+            boolean scored = false;
+            if (correct) {
+                // The fewer wrong guesses, the more points, and always at least one.
+                player.points += choiceCount - player.wrongGuesses;
+                player.wrongGuesses = 0;
+                scored = topScores.update(new Standing(player.name, player.id, player.points,
+                        System.nanoTime()));
+            }
+            else
+                ++player.wrongGuesses;
+
+            DataOutputStream out = player.out;
+            out.writeByte(ClassroomProtocol.RESULT);
+            out.writeInt(questionNumber);
+            out.writeBoolean(correct);
+            out.writeInt(player.points);
+            if (correct) {
+                if (engine.isQuizComplete()) {
+                    out.writeByte(ClassroomProtocol.FINISHED);
+                    out.writeInt(player.points);
+                    out.writeInt(engine.getTotalGuesses());
+                }
+                else {
+                    engine.nextQuestion();
+                    writeQuestion(player);
+                }
+            }
+            return scored;
+        }
+
+        private void writeQuestion(Player player) throws IOException {
+            QuizEngine engine = player.engine;
+            DataOutputStream out = player.out;
+            out.writeByte(ClassroomProtocol.QUESTION);
+            out.writeInt(engine.getQuestionNumber());
+            out.writeInt(engine.getCorrectFlagId());
+            for (int choice = 0; choice < choiceCount; choice++)
+                out.writeInt(engine.getChoiceFlagId(choice));
+        }
+
+        // Writes every frame of the batch, one flush per player.
+        private void flushPlayers() {
+            for (Player player : unflushedPlayers) {
+                player.unflushed = false;
+                if (player.disconnected)
+                    continue;
+                try {
+                    player.out.flush();
+                }
+                catch (IOException e) {
+                    disconnect(player);
+                }
+            }
+            unflushedPlayers.clear();
+        }
+
+        // Closes the socket; the player's reader thread then queues LEFT.
+        private void disconnect(Player player) {
+            player.disconnected = true;
+            closeQuietly(player.socket);
+        }
+    }
+
+    static void writeStandings(DataOutputStream out, List<Standing> standings)
+            throws IOException {
+        out.writeByte(ClassroomProtocol.STANDINGS);
+        out.writeInt(standings.size());
+        for (Standing standing : standings) {
+            out.writeUTF(standing.getName());
+            out.writeInt(standing.getPlayerId());
+            out.writeInt(standing.getPoints());
+        }
+    }
+
+    /**
+     * A merged leaderboard and the board version it was merged at.
+     */
+    private static final class Leaderboard {
+        final long version;
+        final List<Standing> standings;
+
+        Leaderboard(long version, List<Standing> standings) {
+            this.version = version;
+            this.standings = standings;
+        }
+    }
+
+    /**
+     * Hosts a classroom quiz from the command line and prints the leaderboard whenever it
+     * changes.
+     * @param args the options; --help lists them
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = ClassroomProtocol.DEFAULT_PORT;
+        int shardCount = Runtime.getRuntime().availableProcessors();
+        int flagCount = 223;
+        String catalogFile = null;
+        int choiceCount = QuizEngine.DEFAULT_CHOICE_COUNT;
+        int quizLength = QuizEngine.DEFAULT_QUIZ_LENGTH;
+        long seed = System.nanoTime();
+        ClassroomHost host = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException(option + " needs a value");
+
+                String value = args[++i];
+                if (option.equals("--port"))
+                    port = Integer.parseInt(value);
+                else if (option.equals("--shards"))
+                    shardCount = Integer.parseInt(value);
+                else if (option.equals("--flags"))
+                    flagCount = Integer.parseInt(value);
+                else if (option.equals("--catalog"))
+                    catalogFile = value;
+                else if (option.equals("--choices"))
+                    choiceCount = Integer.parseInt(value);
+                else if (option.equals("--length"))
+                    quizLength = Integer.parseInt(value);
+                else if (option.equals("--seed"))
+                    seed = Long.parseLong(value);
+                else
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+
+            host = new ClassroomHost(readCatalog(catalogFile, flagCount), shardCount);
+            host.setChoiceCount(choiceCount);
+            host.setQuizLength(quizLength);
+            host.setSeed(seed);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        host.start(port, null);
+        System.out.println("Hosting a classroom quiz on port " + host.getPort());
+
+        List<Standing> shown = null;
+        while (true) {
+            Thread.sleep(1000);
+            List<Standing> standings = host.getLeaderboard();
+            if (standings != shown) {
+                System.out.println(host.getPlayerCount() + " players, leaderboard " + standings);
+                shown = standings;
+            }
+        }
+    }
+
+    /**
+     * @param catalogFile a flags.idx file, or null
+     * @param flagCount the size of the synthetic catalog used without a file
+     * @return the catalog
+     */
+    static FlagCatalog readCatalog(String catalogFile, int flagCount) throws IOException {
+        if (catalogFile == null)
+            return FlagCatalog.synthetic(flagCount);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(catalogFile))) {
+            return FlagCatalog.read(in);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: ClassroomHost [options]\n" +
+                "  --port N       port to listen on (default 27300)\n" +
+                "  --shards N     threads running the sessions (default: one per core)\n" +
+                "  --flags N      size of a synthetic catalog (default 223)\n" +
+                "  --catalog FILE read the catalog from a flags.idx file instead\n" +
+                "  --choices N    answer choices per question (default 4)\n" +
+                "  --length N     flags per quiz (default 10)\n" +
+                "  --seed N       seed of the quiz (default: random)");
+    }
+}
@@ -0,0 +1,44 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom;
+
+/**
+ * ClassroomProtocol defines the frames a ClassroomHost and its players exchange over TCP.
+ * Every frame is a type byte followed by its fields, written with DataOutputStream:
+ *
+ * Player to host:
+ *   JOIN         UTF name; the first frame of every connection
+ *   ANSWER       int question number, int choice
+ *   LEADERBOARD  no fields
+ *
+ * Host to player:
+ *   WELCOME      int player id, int flag count, int choice count, int flags in the quiz
+ *   QUESTION     int question number, int flag id, then an int flag id per answer choice
+ *   RESULT       int question number, boolean correct, int points
+ *   FINISHED     int points, int total guesses
+ *   STANDINGS    int count, then UTF name, int player id and int points per player
+ *
+ * Flags are sent as flag ids of the host's FlagCatalog, which the players' app has too, so a
+ * question takes a few dozen bytes. Answers to an old question, or to a choice already
+ * guessed, are ignored.
+ */
+public final class ClassroomProtocol {
+    // Port a host listens on unless told otherwise.
+    public static final int DEFAULT_PORT = 27300;
+
+    // Longest player name in UTF-8 bytes.
+    public static final int MAX_NAME_LENGTH = 64;
+
+    // Player to host.
+    public static final byte JOIN = 1;
+    public static final byte ANSWER = 2;
+    public static final byte LEADERBOARD = 3;
+
+    // Host to player.
+    public static final byte WELCOME = 11;
+    public static final byte QUESTION = 12;
+    public static final byte RESULT = 13;
+    public static final byte FINISHED = 14;
+    public static final byte STANDINGS = 15;
+
+    private ClassroomProtocol() {
+    }
+}
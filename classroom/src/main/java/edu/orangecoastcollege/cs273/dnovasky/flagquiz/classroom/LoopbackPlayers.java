@@ -0,0 +1,271 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.LatencyHistogram;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizEngine;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * LoopbackPlayers plays a classroom quiz with many simulated players at once, each a
+ * ClassroomClient on a thread of its own, so one Linux machine can load a host the way a
+ * class of kiosks would. The players all join together, then guess the correct answer with
+ * a configurable accuracy and otherwise a wrong answer they haven't tried yet, until they
+ * finish the quiz. The time from sending each answer to receiving its result is recorded.
+ */
+public class LoopbackPlayers {
+    private final InetSocketAddress address; // The host's address and port.
+    private int playerCount = 300; // Players playing at once.
+    private double accuracy = 0.7; // Probability that a guess of a player is correct.
+    private int thinkMillis; // Time each player waits before each guess.
+    private long seed = 273; // Seed of the players' guesses.
+    private int timeoutMillis = 30000; // Longest wait for the host.
+    private final LatencyHistogram answerMicros = new LatencyHistogram(); // Answer round trips.
+
+    /**
+     * @param address the address and port of the host
+     */
+    public LoopbackPlayers(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    public void setPlayerCount(int playerCount) {
+        this.playerCount = playerCount;
+    }
+
+    /**
+     * @param accuracy the probability, from 0 to 1, that each guess of a player is correct
+     */
+    public void setAccuracy(double accuracy) {
+        if (accuracy < 0 || accuracy > 1)
+            throw new IllegalArgumentException("Accuracy " + accuracy + " is out of range");
+        this.accuracy = accuracy;
+    }
+
+    public void setThinkMillis(int thinkMillis) {
+        this.thinkMillis = thinkMillis;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return the time from sending each answer to receiving its result, in microseconds
+     */
+    public LatencyHistogram getAnswerMicros() {
+        return answerMicros;
+    }
+
+    /**
+     * Plays the quiz with every player and waits for them to finish.
+     * @return the players, disconnected, in the order of their names (Player 0, Player 1...)
+     * @throws IOException if a player couldn't connect or the host replied unexpectedly
+     */
+    public List<ClassroomClient> run() throws IOException, InterruptedException {
+        final List<ClassroomClient> clients = new ArrayList<>(playerCount);
+        for (int player = 0; player < playerCount; player++)
+            clients.add(new ClassroomClient(address, timeoutMillis));
+
+        final CountDownLatch startGate = new CountDownLatch(1);
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[playerCount];
+        for (int player = 0; player < playerCount; player++) {
+            final int index = player;
+            threads[player] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try (ClassroomClient client = clients.get(index)) {
+                        startGate.await();
+                        play(client, "Player " + index, new XoroshiroRandom(seed + index));
+                    }
+                    catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "Loopback player " + player);
+            threads[player].start();
+        }
+
+        startGate.countDown(); // Everyone joins at once.
+        for (Thread thread : threads)
+            thread.join();
+        if (failure.get() != null)
+            throw failure.get();
+        return clients;
+    }
+
+    private void play(ClassroomClient client, String name, Random random)
+            throws IOException, InterruptedException {
+        client.join(name);
+        boolean[] tried = new boolean[client.getChoiceCount()]; // Wrong answers guessed.
+        int wrongGuesses = 0;
+        while (!client.isFinished()) {
+            int correctChoice = 0;
+            while (client.getChoiceFlagId(correctChoice) != client.getFlagId())
+                ++correctChoice;
+
+            // The correct answer, or one of the wrong answers that haven't been tried.
+            int choice = correctChoice;
+            int wrongLeft = tried.length - 1 - wrongGuesses;
+            if (wrongLeft > 0 && random.nextDouble() >= accuracy) {
+                int pick = random.nextInt(wrongLeft);
+                for (int other = 0; other < tried.length; other++) {
+                    if (other == correctChoice || tried[other])
+                        continue;
+                    if (pick-- == 0) {
+                        choice = other;
+                        break;
+                    }
+                }
+            }
+
+            if (thinkMillis > 0)
+                Thread.sleep(thinkMillis);
+            long start = System.nanoTime();
+            boolean correct = client.answer(choice);
+            answerMicros.record((System.nanoTime() - start) / 1000);
+            if (correct) {
+                Arrays.fill(tried, false);
+                wrongGuesses = 0;
+            }
+            else {
+                tried[choice] = true;
+                ++wrongGuesses;
+            }
+        }
+    }
+
+    /**
+     * Plays a classroom quiz with simulated players and prints the round trip times of the
+     * answers and the leaderboard. Without --connect the host runs in the same process on the
+     * loopback address.
+     * @param args the options; --help lists them
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int playerCount = 300;
+        double accuracy = 0.7;
+        int thinkMillis = 0;
+        String connect = null;
+        int shardCount = Runtime.getRuntime().availableProcessors();
+        int flagCount = 223;
+        String catalogFile = null;
+        int choiceCount = QuizEngine.DEFAULT_CHOICE_COUNT;
+        int quizLength = QuizEngine.DEFAULT_QUIZ_LENGTH;
+        long seed = 273;
+        ClassroomHost host = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException(option + " needs a value");
+
+                String value = args[++i];
+                if (option.equals("--players"))
+                    playerCount = Integer.parseInt(value);
+                else if (option.equals("--accuracy"))
+                    accuracy = Double.parseDouble(value);
+                else if (option.equals("--think"))
+                    thinkMillis = Integer.parseInt(value);
+                else if (option.equals("--connect"))
+                    connect = value;
+                else if (option.equals("--shards"))
+                    shardCount = Integer.parseInt(value);
+                else if (option.equals("--flags"))
+                    flagCount = Integer.parseInt(value);
+                else if (option.equals("--catalog"))
+                    catalogFile = value;
+                else if (option.equals("--choices"))
+                    choiceCount = Integer.parseInt(value);
+                else if (option.equals("--length"))
+                    quizLength = Integer.parseInt(value);
+                else if (option.equals("--seed"))
+                    seed = Long.parseLong(value);
+                else
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+
+            if (connect == null) {
+                host = new ClassroomHost(ClassroomHost.readCatalog(catalogFile, flagCount),
+                        shardCount);
+                host.setChoiceCount(choiceCount);
+                host.setQuizLength(quizLength);
+                host.setSeed(seed);
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        InetSocketAddress address;
+        if (connect != null) {
+            int colon = connect.lastIndexOf(':');
+            address = colon < 0 ? new InetSocketAddress(connect, ClassroomProtocol.DEFAULT_PORT) :
+                    new InetSocketAddress(connect.substring(0, colon),
+                            Integer.parseInt(connect.substring(colon + 1)));
+        }
+        else {
+            host.start(0, InetAddress.getLoopbackAddress());
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), host.getPort());
+        }
+
+        LoopbackPlayers players = new LoopbackPlayers(address);
+        players.setPlayerCount(playerCount);
+        players.setAccuracy(accuracy);
+        players.setThinkMillis(thinkMillis);
+        players.setSeed(seed);
+
+        long start = System.nanoTime();
+        List<ClassroomClient> clients = players.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LatencyHistogram answerMicros = players.getAnswerMicros();
+        System.out.printf(Locale.US, "%d players, %,d answers in %.2f s: %,.0f answers/s%n",
+                clients.size(), answerMicros.getCount(), seconds,
+                answerMicros.getCount() / seconds);
+        System.out.printf(Locale.US, "Answer round trip: p50 %d us, p99 %d us, max %d us%n",
+                answerMicros.getValueAtPercentile(50), answerMicros.getValueAtPercentile(99),
+                answerMicros.getMax());
+        if (host != null) {
+            System.out.printf(Locale.US, "Host: %,d submissions in %,d batches (%.1f per " +
+                    "batch) on %d shards%n", host.getSubmissionCount(), host.getBatchCount(),
+                    (double) host.getSubmissionCount() / host.getBatchCount(), shardCount);
+            System.out.println("Leaderboard: " + host.getLeaderboard());
+            host.close();
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: LoopbackPlayers [options]\n" +
+                "  --players N       players playing at once (default 300)\n" +
+                "  --accuracy P      probability that a guess is correct (default 0.7)\n" +
+                "  --think N         milliseconds each player waits before a guess (default 0)\n" +
+                "  --seed N          seed of the quiz and the guesses (default 273)\n" +
+                "  --connect H[:P]   play on a running host instead of one in this process\n" +
+                "Options of the host in this process:\n" +
+                "  --shards N        threads running the sessions (default: one per core)\n" +
+                "  --flags N         size of a synthetic catalog (default 223)\n" +
+                "  --catalog FILE    read the catalog from a flags.idx file instead\n" +
+                "  --choices N       answer choices per question (default 4)\n" +
+                "  --length N        flags per quiz (default 10)");
+    }
+}
@@ -0,0 +1,51 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom;
+
+import java.util.Comparator;
+
+/**
+ * Standing is one player's place on the leaderboard: their name and points when they last
+ * scored. Standings are immutable, so the host's threads share them without locking; a
+ * player who scores again gets a new Standing.
+ */
+public final class Standing {
+    // Most points first; on a tie, whoever got there first, then whoever joined first.
+    static final Comparator<Standing> RANKING = new Comparator<Standing>() {
+        @Override
+        public int compare(Standing a, Standing b) {
+            if (a.points != b.points)
+                return a.points > b.points ? -1 : 1;
+            if (a.scoredNanos != b.scoredNanos)
+                return a.scoredNanos - b.scoredNanos < 0 ? -1 : 1;
+            return a.playerId - b.playerId;
+        }
+    };
+
+    private final String name; // The player's name.
+    private final int playerId; // The player's id, in the order they joined.
+    private final int points; // The player's points.
+    private final long scoredNanos; // System.nanoTime() when the player reached the points.
+
+    Standing(String name, int playerId, int points, long scoredNanos) {
+        this.name = name;
+        this.playerId = playerId;
+        this.points = points;
+        this.scoredNanos = scoredNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + points + ")";
+    }
+}
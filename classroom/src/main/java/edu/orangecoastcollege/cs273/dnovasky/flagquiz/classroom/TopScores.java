@@ -0,0 +1,52 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom;
+
+import java.util.Arrays;
+
+/**
+ * TopScores keeps the best standings of one shard's players in ranking order. Points only
+ * ever go up, so a player who scores either moves up the list, enters it in place of the
+ * last player, or stays off it: each update takes O(size) time however many players there
+ * are. Only the shard's thread uses it.
+ */
+final class TopScores {
+    private final Standing[] top; // The best standings, best first.
+    private int size; // Number of standings in top.
+
+    /**
+     * @param capacity the number of standings to keep
+     */
+    TopScores(int capacity) {
+        top = new Standing[capacity];
+    }
+
+    /**
+     * Records a player's new standing.
+     * @param standing the standing, with more points than the player's previous one
+     * @return true if the kept standings changed
+     */
+    boolean update(Standing standing) {
+        int index = 0;
+        while (index < size && top[index].getPlayerId() != standing.getPlayerId())
+            ++index;
+        if (index == size) {
+            if (size < top.length)
+                ++size;
+            else if (Standing.RANKING.compare(standing, top[size - 1]) > 0)
+                return false; // Not good enough to enter.
+            index = size - 1;
+        }
+
+        // Move up past the standings it now beats.
+        for (; index > 0 && Standing.RANKING.compare(standing, top[index - 1]) < 0; index--)
+            top[index] = top[index - 1];
+        top[index] = standing;
+        return true;
+    }
+
+    /**
+     * @return a copy of the kept standings, best first
+     */
+    Standing[] toArray() {
+        return Arrays.copyOf(top, size);
+    }
+}
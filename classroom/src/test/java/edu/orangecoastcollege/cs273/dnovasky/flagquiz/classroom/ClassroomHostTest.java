@@ -0,0 +1,175 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests hosting classroom quizzes with ClassroomHost, played by ClassroomClients over
+ * loopback.
+ */
+public class ClassroomHostTest {
+    private ClassroomHost host;
+    private InetSocketAddress address;
+
+    @Before
+    public void setUp() throws Exception {
+        host = new ClassroomHost(FlagCatalog.synthetic(223), 4);
+        host.setSeed(42);
+        host.start(0, InetAddress.getLoopbackAddress());
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), host.getPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        host.close();
+    }
+
+    @Test
+    public void hundredsOfPlayers_finishTheQuizAndRankOnTheLeaderboard() throws Exception {
+        LoopbackPlayers players = new LoopbackPlayers(address);
+        players.setPlayerCount(300);
+        players.setAccuracy(0.6);
+        List<ClassroomClient> clients = players.run();
+
+        int bestPoints = 0;
+        long answers = 0;
+        for (ClassroomClient client : clients) {
+            assertTrue(client.isFinished());
+            assertEquals(10, client.getFlagsInQuiz());
+            // Between 1 and 4 points a question, 4 for a right first guess.
+            assertTrue(client.getPoints() >= 10 && client.getPoints() <= 40);
+            assertEquals(50 - client.getPoints(), client.getTotalGuesses());
+            bestPoints = Math.max(bestPoints, client.getPoints());
+            answers += client.getTotalGuesses();
+        }
+        assertEquals(300, host.getPlayerCount());
+        assertEquals(answers, players.getAnswerMicros().getCount());
+        assertTrue(host.getBatchCount() <= host.getSubmissionCount());
+
+        List<Standing> leaderboard = host.getLeaderboard();
+        assertEquals(10, leaderboard.size());
+        assertEquals(bestPoints, leaderboard.get(0).getPoints());
+        for (int rank = 1; rank < leaderboard.size(); rank++)
+            assertTrue(leaderboard.get(rank - 1).getPoints() >= leaderboard.get(rank).getPoints());
+        for (Standing standing : leaderboard) {
+            ClassroomClient client = clients.get(Integer.parseInt(
+                    standing.getName().substring("Player ".length())));
+            assertEquals(client.getPoints(), standing.getPoints());
+            assertEquals(client.getPlayerId(), standing.getPlayerId());
+        }
+        assertSame(leaderboard, host.getLeaderboard()); // Cached until someone scores.
+    }
+
+    @Test
+    public void everyPlayer_getsTheSameQuestions() throws Exception {
+        try (ClassroomClient first = new ClassroomClient(address, 5000);
+             ClassroomClient second = new ClassroomClient(address, 5000)) {
+            first.join("First");
+            second.join("Second");
+            assertNotEquals(first.getPlayerId(), second.getPlayerId());
+            assertEquals(223, first.getFlagCount());
+
+            while (!first.isFinished()) {
+                assertEquals(first.getQuestionNumber(), second.getQuestionNumber());
+                assertEquals(first.getFlagId(), second.getFlagId());
+                int correctChoice = -1;
+                for (int choice = 0; choice < first.getChoiceCount(); choice++) {
+                    assertEquals(first.getChoiceFlagId(choice), second.getChoiceFlagId(choice));
+                    if (first.getChoiceFlagId(choice) == first.getFlagId())
+                        correctChoice = choice;
+                }
+                assertTrue(first.answer(correctChoice));
+                // The second player guesses a wrong answer first.
+                assertFalse(second.answer((correctChoice + 1) % second.getChoiceCount()));
+                assertTrue(second.answer(correctChoice));
+            }
+            assertEquals(40, first.getPoints());
+            assertEquals(30, second.getPoints());
+
+            List<Standing> standings = second.requestLeaderboard();
+            assertEquals(2, standings.size());
+            assertEquals("First", standings.get(0).getName());
+            assertEquals(40, standings.get(0).getPoints());
+            assertEquals("Second", standings.get(1).getName());
+        }
+    }
+
+    @Test
+    public void lateAndRepeatedAnswers_areIgnored() throws Exception {
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            socket.setSoTimeout(5000);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            out.writeByte(ClassroomProtocol.JOIN);
+            out.writeUTF("Raw");
+            assertEquals(ClassroomProtocol.WELCOME, in.readByte());
+            in.readInt();
+            in.readInt();
+            int choiceCount = in.readInt();
+            in.readInt();
+            assertEquals(ClassroomProtocol.QUESTION, in.readByte());
+            assertEquals(1, in.readInt());
+            int flagId = in.readInt();
+            int wrongChoice = -1;
+            for (int choice = 0; choice < choiceCount; choice++)
+                if (in.readInt() != flagId)
+                    wrongChoice = choice;
+
+            // An answer to another question, an answer out of range and a repeated wrong
+            // answer get no result; the leaderboard request after them is the next reply.
+            out.writeByte(ClassroomProtocol.ANSWER);
+            out.writeInt(2);
+            out.writeInt(0);
+            out.writeByte(ClassroomProtocol.ANSWER);
+            out.writeInt(1);
+            out.writeInt(choiceCount);
+            for (int repeat = 0; repeat < 2; repeat++) {
+                out.writeByte(ClassroomProtocol.ANSWER);
+                out.writeInt(1);
+                out.writeInt(wrongChoice);
+            }
+            out.writeByte(ClassroomProtocol.LEADERBOARD);
+
+            assertEquals(ClassroomProtocol.RESULT, in.readByte());
+            assertEquals(1, in.readInt());
+            assertFalse(in.readBoolean());
+            assertEquals(0, in.readInt());
+            assertEquals(ClassroomProtocol.STANDINGS, in.readByte());
+            assertEquals(0, in.readInt());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void settings_cantChangeOnceStarted() throws Exception {
+        host.setChoiceCount(6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setLeaderboardSize_rejectsAnEmptyLeaderboard() throws Exception {
+        new ClassroomHost(FlagCatalog.synthetic(16), 1).setLeaderboardSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setChoiceCount_rejectsASingleChoice() throws Exception {
+        new ClassroomHost(FlagCatalog.synthetic(16), 1).setChoiceCount(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setQuizLength_rejectsAnEmptyQuiz() throws Exception {
+        new ClassroomHost(FlagCatalog.synthetic(16), 1).setQuizLength(0);
+    }
+}
@@ -0,0 +1,44 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.classroom;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests keeping a shard's best standings with TopScores.
+ */
+public class TopScoresTest {
+    private static Standing standing(int playerId, int points, long scoredNanos) {
+        return new Standing("Player " + playerId, playerId, points, scoredNanos);
+    }
+
+    private static void assertPlayers(TopScores topScores, int... playerIds) {
+        Standing[] standings = topScores.toArray();
+        assertEquals(playerIds.length, standings.length);
+        for (int rank = 0; rank < playerIds.length; rank++)
+            assertEquals(playerIds[rank], standings[rank].getPlayerId());
+    }
+
+    @Test
+    public void update_keepsTheBestStandingsInOrder() throws Exception {
+        TopScores topScores = new TopScores(3);
+        assertTrue(topScores.update(standing(0, 4, 1)));
+        assertTrue(topScores.update(standing(1, 3, 2)));
+        assertTrue(topScores.update(standing(2, 4, 3))); // Ties rank by who scored first.
+        assertPlayers(topScores, 0, 2, 1);
+
+        // A fourth player enters only by beating the last one.
+        assertFalse(topScores.update(standing(3, 3, 4)));
+        assertTrue(topScores.update(standing(3, 5, 5)));
+        assertPlayers(topScores, 3, 0, 2);
+
+        // A player already kept moves up rather than entering twice.
+        assertTrue(topScores.update(standing(2, 9, 6)));
+        assertPlayers(topScores, 2, 3, 0);
+        assertEquals(9, topScores.toArray()[0].getPoints());
+
+        // The player who dropped out comes back by scoring.
+        assertTrue(topScores.update(standing(1, 6, 7)));
+        assertPlayers(topScores, 2, 1, 3);
+    }
+}
@@ -0,0 +1,263 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * CountryNameIndex suggests countries for a typed answer: every flag whose name, or one of
+ * its alternate names, starts with the typed text or has a word that does. Matching ignores
+ * case, accents and punctuation, so "cote d" finds Ivory Coast by its alternate name
+ * C&ocirc;te d'Ivoire and "st kitts" finds Saint Kitts and Nevis.
+ *
+ * The index is a sorted array of normalized keys (each name, and each of its words after the
+ * first) packed into one char array. A lookup normalizes the typed text into a reused buffer,
+ * binary searches for the first key at or after it and reads the matching keys that follow,
+ * so each keystroke takes O(log n + matches) time and allocates nothing, whatever the size
+ * of the catalog. An index is not thread-safe because of the reused buffers.
+ */
+public class CountryNameIndex {
+    // Longest typed text that is matched; the rest is ignored.
+    public static final int MAX_QUERY_LENGTH = 64;
+
+    private static final byte NAME_START = 0; // A key at the start of a name.
+    private static final byte WORD_START = 1; // A key at a later word of a name.
+
+    // Words that don't start keys of their own.
+    private static final List<String> STOP_WORDS = Arrays.asList("and", "of", "the");
+
+    // Lower-case letters without accents for the characters up to U+017F (Latin-1 and Latin
+    // Extended-A), or 0 for characters that are dropped.
+    private static final char[] FOLDED = new char[0x180];
+
+    static {
+        for (char c = 0; c < FOLDED.length; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = Character.toLowerCase(decomposed.charAt(0));
+            FOLDED[c] = Character.isLetterOrDigit(base) ? base :
+                    Character.isWhitespace(base) || base == '-' || base == '_' ? ' ' : 0;
+        }
+        // Letters that don't decompose into a base letter and an accent.
+        FOLDED['\u00D8'] = FOLDED['\u00F8'] = 'o';
+        FOLDED['\u0110'] = FOLDED['\u0111'] = 'd';
+        FOLDED['\u0141'] = FOLDED['\u0142'] = 'l';
+        FOLDED['\u0126'] = FOLDED['\u0127'] = 'h';
+    }
+
+    private final char[] keys; // Every key, in sorted order, one after another.
+    private final int[] keyStarts; // Start of each key in keys, plus keys.length.
+    private final int[] keyFlagIds; // Flag id of each key.
+    private final byte[] keyKinds; // NAME_START or WORD_START for each key.
+
+    private final char[] query = new char[MAX_QUERY_LENGTH]; // The normalized typed text.
+    private final int[] matchStamps; // matchStamp for each flag id already matched.
+    private int matchStamp; // Changes with every lookup, so matchStamps needn't be cleared.
+
+    private CountryNameIndex(char[] keys, int[] keyStarts, int[] keyFlagIds, byte[] keyKinds,
+                             int flagCount) {
+        this.keys = keys;
+        this.keyStarts = keyStarts;
+        this.keyFlagIds = keyFlagIds;
+        this.keyKinds = keyKinds;
+        matchStamps = new int[flagCount];
+    }
+
+    /**
+     * Builds the index of a catalog's country names.
+     * @param catalog the catalog
+     * @param alternateNames other names of each flag id, or null; each element may be null
+     * @return the index
+     */
+    public static CountryNameIndex build(FlagCatalogSource catalog, String[][] alternateNames) {
+        final List<String> keyList = new ArrayList<>();
+        List<Integer> flagIdList = new ArrayList<>();
+        List<Byte> kindList = new ArrayList<>();
+        for (int id = 0; id < catalog.getFlagCount(); id++) {
+            addKeys(catalog.getName(id), id, keyList, flagIdList, kindList);
+            if (alternateNames != null && alternateNames[id] != null)
+                for (String name : alternateNames[id])
+                    addKeys(name, id, keyList, flagIdList, kindList);
+        }
+
+        // Sort the keys, ties by flag id, through a permutation of their positions.
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        final List<Integer> flagIds = flagIdList;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byKey = keyList.get(a).compareTo(keyList.get(b));
+                return byKey != 0 ? byKey : flagIds.get(a) - flagIds.get(b);
+            }
+        });
+
+        int length = 0;
+        for (String key : keyList)
+            length += key.length();
+        char[] keys = new char[length];
+        int[] keyStarts = new int[order.length + 1];
+        int[] keyFlagIds = new int[order.length];
+        byte[] keyKinds = new byte[order.length];
+        for (int i = 0; i < order.length; i++) {
+            String key = keyList.get(order[i]);
+            key.getChars(0, key.length(), keys, keyStarts[i]);
+            keyStarts[i + 1] = keyStarts[i] + key.length();
+            keyFlagIds[i] = flagIdList.get(order[i]);
+            keyKinds[i] = kindList.get(order[i]);
+        }
+        return new CountryNameIndex(keys, keyStarts, keyFlagIds, keyKinds,
+                catalog.getFlagCount());
+    }
+
+    // Adds the keys of one name: the whole name and every later word except stop words.
+    private static void addKeys(String name, int flagId, List<String> keyList,
+                                List<Integer> flagIdList, List<Byte> kindList) {
+        String key = normalize(name);
+        if (key.isEmpty())
+            return;
+        keyList.add(key);
+        flagIdList.add(flagId);
+        kindList.add(NAME_START);
+
+        for (int space = key.indexOf(' '); space >= 0; space = key.indexOf(' ', space + 1)) {
+            String suffix = key.substring(space + 1);
+            int wordEnd = suffix.indexOf(' ');
+            if (STOP_WORDS.contains(wordEnd < 0 ? suffix : suffix.substring(0, wordEnd)))
+                continue;
+            keyList.add(suffix);
+            flagIdList.add(flagId);
+            kindList.add(WORD_START);
+        }
+    }
+
+    /**
+     * Normalizes a name the way typed text is matched: lower case, without accents or
+     * punctuation, with words separated by single spaces.
+     * @param name the name
+     * @return the normalized name
+     */
+    public static String normalize(CharSequence name) {
+        char[] buffer = new char[name.length() * 2];
+        return new String(buffer, 0, normalize(name, buffer));
+    }
+
+    // Normalizes text into a buffer, as much as fits, and returns the normalized length.
+    private static int normalize(CharSequence text, char[] out) {
+        int length = 0;
+        for (int i = 0; i < text.length() && length < out.length; i++) {
+            char c = text.charAt(i);
+            String pair = null; // Letters that stand for two.
+            switch (c) {
+                case '\u00DF': pair = "ss"; break; // Sharp s
+                case '\u00C6': case '\u00E6': pair = "ae"; break;
+                case '\u0152': case '\u0153': pair = "oe"; break;
+            }
+            if (pair != null) {
+                out[length++] = pair.charAt(0);
+                if (length < out.length)
+                    out[length++] = pair.charAt(1);
+                continue;
+            }
+
+            char folded = c < FOLDED.length ? FOLDED[c] :
+                    Character.isLetterOrDigit(c) ? Character.toLowerCase(c) :
+                    Character.isWhitespace(c) ? ' ' : 0;
+            if (folded == 0)
+                continue; // Punctuation, e.g. the dot of "St." or an apostrophe.
+            if (folded == ' ' && (length == 0 || out[length - 1] == ' '))
+                continue; // Leading or repeated space.
+            out[length++] = folded;
+        }
+        return length > 0 && out[length - 1] == ' ' ? length - 1 : length; // Trailing space.
+    }
+
+    /**
+     * Finds the flags matching the text typed so far, without allocating: first those with
+     * a name that starts with it, then those with a word that does, each group alphabetical
+     * and each flag once.
+     * @param typed the typed text
+     * @param out receives the matching flag ids, as many as fit
+     * @return the number of flag ids written to out; 0 if the text has no letters
+     */
+    public int match(CharSequence typed, int[] out) {
+        int queryLength = normalize(typed, query);
+        if (queryLength == 0 || out.length == 0)
+            return 0;
+        if (++matchStamp == 0) {
+            Arrays.fill(matchStamps, 0); // The stamp wrapped around.
+            matchStamp = 1;
+        }
+
+        int first = lowerBound(queryLength);
+        int matches = collect(first, queryLength, NAME_START, out, 0);
+        if (matches < out.length)
+            matches = collect(first, queryLength, WORD_START, out, matches);
+        return matches;
+    }
+
+    /**
+     * Finds the flag whose name or alternate name is the typed text, e.g. when the user
+     * submits an answer without picking a suggestion.
+     * @param typed the typed text
+     * @return the flag id, or -1 if no name matches the text exactly
+     */
+    public int findExact(CharSequence typed) {
+        int queryLength = normalize(typed, query);
+        if (queryLength == 0)
+            return -1;
+        for (int key = lowerBound(queryLength); key < keyFlagIds.length &&
+                startsWithQuery(key, queryLength); key++)
+            if (keyKinds[key] == NAME_START && keyStarts[key + 1] - keyStarts[key] == queryLength)
+                return keyFlagIds[key];
+        return -1;
+    }
+
+    // Adds the flags of the keys of one kind that start with the query, from the first.
+    private int collect(int first, int queryLength, byte kind, int[] out, int matches) {
+        for (int key = first; key < keyFlagIds.length && matches < out.length &&
+                startsWithQuery(key, queryLength); key++) {
+            int flagId = keyFlagIds[key];
+            if (keyKinds[key] != kind || matchStamps[flagId] == matchStamp)
+                continue;
+            matchStamps[flagId] = matchStamp;
+            out[matches++] = flagId;
+        }
+        return matches;
+    }
+
+    // Returns the first key that is not less than the query.
+    private int lowerBound(int queryLength) {
+        int low = 0;
+        int high = keyFlagIds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareToQuery(middle, queryLength) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int compareToQuery(int key, int queryLength) {
+        int start = keyStarts[key];
+        int length = keyStarts[key + 1] - start;
+        for (int i = 0; i < Math.min(length, queryLength); i++)
+            if (keys[start + i] != query[i])
+                return keys[start + i] - query[i];
+        return length - queryLength;
+    }
+
+    private boolean startsWithQuery(int key, int queryLength) {
+        int start = keyStarts[key];
+        if (keyStarts[key + 1] - start < queryLength)
+            return false;
+        for (int i = 0; i < queryLength; i++)
+            if (keys[start + i] != query[i])
+                return false;
+        return true;
+    }
+}
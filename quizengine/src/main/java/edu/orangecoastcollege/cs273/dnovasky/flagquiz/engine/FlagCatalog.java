@@ -0,0 +1,194 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * FlagCatalog holds every flag the quiz knows about in compact arrays indexed by flag id.
+ * Flags are grouped by region, so the flags of a region are the ids from
+ * getRegionStart(region) (inclusive) to getRegionEnd(region) (exclusive).
+ *
+ * The catalog is normally read from the flags.idx asset generated at build time
+ * (see app/flags.gradle), which saves listing the asset folders at runtime.
+ */
+public class FlagCatalog implements FlagCatalogSource {
+    // Name of the generated index in the assets folder.
+    public static final String INDEX_FILE = "flags.idx";
+
+    private static final int MAGIC = 0x464C4749; // "FLGI"
+    private static final int VERSION = 2;
+
+    // Regions the synthetic flags are spread over, like the app's asset folders.
+    private static final String[] SYNTHETIC_REGIONS =
+            {"Africa", "Asia", "Europe", "North_America", "Oceania", "South_America"};
+
+    private final String[] regions; // Region (asset folder) names.
+    private final int[] regionStarts; // First flag id of each region, plus the flag count.
+    private final String[] fileNames; // File names without ".png" (e.g. Africa-Cape_Verde).
+    private final String[] names; // Display names (e.g. Cape Verde).
+
+    private FlagCatalog(String[] regions, int[] regionStarts, String[] fileNames,
+                        String[] names) {
+        this.regions = regions;
+        this.regionStarts = regionStarts;
+        this.fileNames = fileNames;
+        this.names = names;
+    }
+
+    /**
+     * Reads a catalog in the flags.idx format.
+     * @param in the stream to read the index from
+     * @return the catalog
+     * @throws IOException if the stream can't be read or is not a flag index
+     */
+    public static FlagCatalog read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readUnsignedShort() != VERSION)
+            throw new IOException("Not a version " + VERSION + " flag index");
+
+        String[] regions = new String[data.readUnsignedShort()];
+        for (int region = 0; region < regions.length; region++)
+            regions[region] = data.readUTF();
+
+        int flagCount = data.readUnsignedShort();
+        int[] regionStarts = new int[regions.length + 1];
+        String[] fileNames = new String[flagCount];
+        String[] names = new String[flagCount];
+
+        int lastRegion = 0;
+        for (int id = 0; id < flagCount; id++) {
+            int region = data.readUnsignedByte();
+            if (region < lastRegion || region >= regions.length)
+                throw new IOException("Flag " + id + " is out of region order");
+            while (lastRegion < region)
+                regionStarts[++lastRegion] = id;
+
+            fileNames[id] = data.readUTF();
+            names[id] = data.readUTF();
+        }
+        while (lastRegion < regions.length)
+            regionStarts[++lastRegion] = flagCount;
+
+        return new FlagCatalog(regions, regionStarts, fileNames, names);
+    }
+
+    /**
+     * Builds a catalog from asset file names when no index is available.
+     * @param regions the region names
+     * @param regionFiles the flag file names (with or without ".png") of each region
+     * @return the catalog
+     */
+    public static FlagCatalog fromFileNames(String[] regions, String[][] regionFiles) {
+        int[] regionStarts = new int[regions.length + 1];
+        for (int region = 0; region < regions.length; region++)
+            regionStarts[region + 1] = regionStarts[region] + regionFiles[region].length;
+
+        int flagCount = regionStarts[regions.length];
+        String[] fileNames = new String[flagCount];
+        String[] names = new String[flagCount];
+        int id = 0;
+        for (String[] files : regionFiles) {
+            for (String file : files) {
+                fileNames[id] = file.endsWith(".png") ?
+                        file.substring(0, file.length() - 4) : file;
+                names[id] = parseCountryName(fileNames[id]);
+                ++id;
+            }
+        }
+        return new FlagCatalog(regions.clone(), regionStarts, fileNames, names);
+    }
+
+    /**
+     * Builds a catalog of any size for simulations, load tests and benchmarks, without the
+     * app's assets. 16 flags matches the smallest region (South_America) and 223 matches all
+     * six regions of the app.
+     * @param flagCount the number of flags
+     * @return a catalog of flagCount flags spread evenly over the app's regions, named like
+     *         the app's, e.g. Asia-Country_Number_7
+     */
+    public static FlagCatalog synthetic(int flagCount) {
+        String[][] regionFiles = new String[SYNTHETIC_REGIONS.length][];
+        int id = 0;
+        for (int region = 0; region < SYNTHETIC_REGIONS.length; region++) {
+            int regionEnd = (int) ((long) flagCount * (region + 1) / SYNTHETIC_REGIONS.length);
+            regionFiles[region] = new String[regionEnd - id];
+            for (int file = 0; id < regionEnd; file++, id++)
+                regionFiles[region][file] =
+                        SYNTHETIC_REGIONS[region] + "-Country_Number_" + id + ".png";
+        }
+        return fromFileNames(SYNTHETIC_REGIONS, regionFiles);
+    }
+
+    /**
+     *  Parses the country flag file name (e.g. Oceania-American_Samoa) and returns
+     *  the country name (e.g. American Samoa), replacing underscores with spaces.
+     * @param fileName the flag file name
+     * @return The country name, parsed from the file name
+     */
+    static String parseCountryName(String fileName) {
+        return fileName.substring(fileName.indexOf('-') + 1).replace('_', ' ');
+    }
+
+    @Override
+    public int getFlagCount() {
+        return fileNames.length;
+    }
+
+    @Override
+    public int getRegionCount() {
+        return regions.length;
+    }
+
+    @Override
+    public String getRegion(int region) {
+        return regions[region];
+    }
+
+    @Override
+    public int indexOfRegion(String region) {
+        for (int index = 0; index < regions.length; index++)
+            if (regions[index].equals(region))
+                return index;
+        return -1;
+    }
+
+    @Override
+    public int getRegionStart(int region) {
+        return regionStarts[region];
+    }
+
+    @Override
+    public int getRegionEnd(int region) {
+        return regionStarts[region + 1];
+    }
+
+    /**
+     * @param id the flag id
+     * @return the index of the region the flag belongs to
+     */
+    public int getRegionOf(int id) {
+        int region = 0;
+        while (regionStarts[region + 1] <= id)
+            ++region;
+        return region;
+    }
+
+    @Override
+    public String getFileName(int id) {
+        return fileNames[id];
+    }
+
+    @Override
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @param id the flag id
+     * @return the flag's path in the assets folder, e.g. Europe/Europe-France.png
+     */
+    public String getAssetPath(int id) {
+        return regions[getRegionOf(id)] + "/" + fileNames[id] + ".png";
+    }
+}
@@ -0,0 +1,55 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+/**
+ * FlagCatalogSource is the view of the flag catalog the quiz engine works with. Flags are
+ * identified by ids from 0 to getFlagCount() - 1 and grouped by region, so the flags of a
+ * region are the ids from getRegionStart(region) (inclusive) to getRegionEnd(region)
+ * (exclusive).
+ */
+public interface FlagCatalogSource {
+    /**
+     * @return the number of flags in the catalog
+     */
+    int getFlagCount();
+
+    /**
+     * @return the number of regions in the catalog
+     */
+    int getRegionCount();
+
+    /**
+     * @param region the index of the region
+     * @return the region (asset folder) name, e.g. North_America
+     */
+    String getRegion(int region);
+
+    /**
+     * @param region the region (asset folder) name, e.g. North_America
+     * @return the index of the region, or -1 if the catalog has no such region
+     */
+    int indexOfRegion(String region);
+
+    /**
+     * @param region the index of the region
+     * @return the first flag id of the region
+     */
+    int getRegionStart(int region);
+
+    /**
+     * @param region the index of the region
+     * @return one past the last flag id of the region
+     */
+    int getRegionEnd(int region);
+
+    /**
+     * @param id the flag id
+     * @return the flag file name without ".png", e.g. Africa-Cape_Verde
+     */
+    String getFileName(int id);
+
+    /**
+     * @param id the flag id
+     * @return the country name to display, e.g. Cape Verde
+     */
+    String getName(int id);
+}
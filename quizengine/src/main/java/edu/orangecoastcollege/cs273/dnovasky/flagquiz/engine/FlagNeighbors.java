@@ -0,0 +1,76 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * FlagNeighbors holds the flags that look most alike to each flag, nearest first, which
+ * QuizEngine offers as wrong answers in hard mode.
+ *
+ * The table is read from the flags.knn asset generated at build time (see app/flags.gradle)
+ * by comparing the colour histograms and layouts of the flag images, so the device never
+ * analyses an image. Its flag ids are those of the FlagCatalog built from the same assets.
+ */
+public class FlagNeighbors {
+    // Name of the generated table in the assets folder.
+    public static final String NEIGHBORS_FILE = "flags.knn";
+
+    private static final int MAGIC = 0x464C474B; // "FLGK"
+    private static final int VERSION = 1;
+
+    private final int flagCount; // Number of flags in the table.
+    private final int neighborCount; // Number of neighbours of each flag.
+    private final char[] neighbors; // Neighbours of flag id i at i * neighborCount, nearest first.
+
+    private FlagNeighbors(int flagCount, int neighborCount, char[] neighbors) {
+        this.flagCount = flagCount;
+        this.neighborCount = neighborCount;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * Reads a table in the flags.knn format.
+     * @param in the stream to read the table from
+     * @return the table
+     * @throws IOException if the stream can't be read or is not a neighbour table
+     */
+    public static FlagNeighbors read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readUnsignedShort() != VERSION)
+            throw new IOException("Not a version " + VERSION + " neighbour table");
+
+        int flagCount = data.readUnsignedShort();
+        int neighborCount = data.readUnsignedByte();
+        char[] neighbors = new char[flagCount * neighborCount];
+        for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i] = data.readChar();
+            if (neighbors[i] >= flagCount)
+                throw new IOException("Neighbour " + (int) neighbors[i] + " is not a flag");
+        }
+        return new FlagNeighbors(flagCount, neighborCount, neighbors);
+    }
+
+    /**
+     * @return the number of flags in the table, which must match the catalog's
+     */
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * @return the number of neighbours of each flag
+     */
+    public int getNeighborCount() {
+        return neighborCount;
+    }
+
+    /**
+     * @param flagId the flag id
+     * @param rank 0 for the flag's nearest neighbour, 1 for the next nearest, ...
+     * @return the flag id of the neighbour
+     */
+    public int getNeighbor(int flagId, int rank) {
+        return neighbors[flagId * neighborCount + rank];
+    }
+}
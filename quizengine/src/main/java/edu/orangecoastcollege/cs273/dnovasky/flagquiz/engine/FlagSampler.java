@@ -0,0 +1,145 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * FlagSampler draws distinct flags from a pool of flag ids without replacement, both for the
+ * flags of a quiz and for the wrong answers (distractors) shown with each flag.
+ *
+ * The pool is kept as a permutation of its ids and each draw runs a partial Fisher-Yates
+ * shuffle over its first positions, so drawing k flags takes O(k) time and no allocation no
+ * matter how large the pool is. The pool doesn't need to be restored after a draw because
+ * any permutation of it is an equally good starting point for the next one. Given the same
+ * pool and an identically seeded Random, a sampler always draws the same flags.
+ *
+ * Flags can be added to and removed from the pool in O(1) each, so enabling or disabling a
+ * region only touches that region's flags.
+ */
+public class FlagSampler {
+    private final int[] pool; // The pool's flag ids in its first size slots, in no order.
+    private final int[] slots; // Position of each flag id in the pool, or -1 if not in it.
+    private int size; // Number of flags in the pool.
+
+    /**
+     * Creates a sampler with an empty pool that can hold the flag ids 0 to flagCount - 1.
+     * @param flagCount the number of flag ids
+     */
+    public FlagSampler(int flagCount) {
+        pool = new int[flagCount];
+        slots = new int[flagCount];
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Creates a sampler over a pool of flags.
+     * @param flagIds the distinct, non-negative flag ids of the pool
+     */
+    public FlagSampler(int[] flagIds) {
+        this(maxFlagId(flagIds) + 1);
+        for (int flagId : flagIds)
+            add(flagId);
+    }
+
+    private static int maxFlagId(int[] flagIds) {
+        int maxFlagId = -1;
+        for (int flagId : flagIds)
+            maxFlagId = Math.max(maxFlagId, flagId);
+        return maxFlagId;
+    }
+
+    /**
+     * @return the number of flags in the pool
+     */
+    public int getPoolSize() {
+        return size;
+    }
+
+    /**
+     * @param flagId a flag id
+     * @return true if the flag is in the pool
+     */
+    public boolean contains(int flagId) {
+        return flagId >= 0 && flagId < slots.length && slots[flagId] >= 0;
+    }
+
+    /**
+     * Adds a flag to the pool unless it is already in it.
+     * @param flagId the flag id, from 0 to the number of flag ids - 1
+     */
+    public void add(int flagId) {
+        if (slots[flagId] >= 0)
+            return;
+        pool[size] = flagId;
+        slots[flagId] = size++;
+    }
+
+    /**
+     * Removes a flag from the pool if it is in it.
+     * @param flagId the flag id, from 0 to the number of flag ids - 1
+     */
+    public void remove(int flagId) {
+        if (slots[flagId] < 0)
+            return;
+        // Move the flag to the end of the pool and shrink the pool past it.
+        swap(slots[flagId], --size);
+        slots[flagId] = -1;
+    }
+
+    /**
+     * Draws count distinct flags from the pool in random order.
+     * @param count the number of flags to draw
+     * @param random the random number generator to draw with
+     * @param out receives the drawn flag ids in its first count elements
+     * @throws IllegalArgumentException if the pool has fewer than count flags
+     */
+    public void sample(int count, Random random, int[] out) {
+        if (count > size)
+            throw new IllegalArgumentException("Can't draw " + count +
+                    " flags from a pool of " + size);
+        if (count > out.length)
+            throw new IllegalArgumentException("Output holds only " + out.length + " flags");
+
+        draw(count, size, random, out);
+    }
+
+    /**
+     * Draws count distinct flags other than the correct answer, in random order.
+     * @param correctFlagId the flag id of the correct answer, which must be in the pool
+     * @param count the number of wrong answers to draw
+     * @param random the random number generator to draw with
+     * @param out receives the drawn flag ids in its first count elements
+     * @throws IllegalArgumentException if the correct answer isn't in the pool or the pool
+     *         has fewer than count other flags
+     */
+    public void pickDistractors(int correctFlagId, int count, Random random, int[] out) {
+        if (!contains(correctFlagId))
+            throw new IllegalArgumentException("Flag " + correctFlagId + " isn't in the pool");
+        if (count > size - 1)
+            throw new IllegalArgumentException("Can't draw " + count +
+                    " wrong answers from a pool of " + size);
+        if (count > out.length)
+            throw new IllegalArgumentException("Output holds only " + out.length + " flags");
+
+        // Move the correct answer to the end of the pool, out of reach of the draw.
+        swap(slots[correctFlagId], size - 1);
+        draw(count, size - 1, random, out);
+    }
+
+    // Partial Fisher-Yates shuffle of the first count positions of pool[0, limit).
+    private void draw(int count, int limit, Random random, int[] out) {
+        for (int i = 0; i < count; i++) {
+            // Swap a random flag from the undrawn part of the pool into position i.
+            swap(i, i + random.nextInt(limit - i));
+            out[i] = pool[i];
+        }
+    }
+
+    private void swap(int i, int j) {
+        int flagId = pool[i];
+        pool[i] = pool[j];
+        pool[j] = flagId;
+        slots[pool[i]] = i;
+        slots[pool[j]] = j;
+    }
+}
@@ -0,0 +1,166 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * FlagScheduler draws flags with probability proportional to a weight per flag, so quizzes
+ * can favour the flags a user misses. Flags with weight 0 are never drawn.
+ *
+ * Flags are grouped by the power of two of their weight: bucket k holds the flags whose
+ * weight is in [2^k, 2^(k+1)). A draw picks a bucket in proportion to its size times 2^(k+1),
+ * a flag of the bucket uniformly, and accepts it with probability weight / 2^(k+1), which is
+ * at least 1/2. Each draw therefore takes O(1) expected time (there are at most 30 buckets),
+ * and changing a weight moves one flag between two buckets in O(1), where an alias table
+ * would have to be rebuilt in O(n).
+ */
+public class FlagScheduler {
+    // Largest weight a flag can have.
+    public static final int MAX_WEIGHT = (1 << 30) - 1;
+
+    private static final int BUCKETS = 30; // Bucket k holds weights in [2^k, 2^(k+1)).
+
+    private final int[] weights; // Weight of each flag id, 0 if it isn't drawn.
+    private final int[] positions; // Position of each flag in its bucket.
+    private final int[][] buckets; // Flag ids of each bucket; grown as needed.
+    private final int[] bucketSizes; // Number of flags in each bucket.
+    private int[] drawnWeights = new int[0]; // Weights of the flags taken out by sample().
+    private long totalCapacity; // Sum over the buckets of size * 2^(k+1).
+    private int flagCount; // Number of flags with a weight above 0.
+
+    /**
+     * Creates a scheduler for the flag ids 0 to flagCount - 1, all with weight 0.
+     * @param flagCount the number of flag ids
+     */
+    public FlagScheduler(int flagCount) {
+        weights = new int[flagCount];
+        positions = new int[flagCount];
+        buckets = new int[BUCKETS][];
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            buckets[bucket] = new int[4];
+        bucketSizes = new int[BUCKETS];
+    }
+
+    /**
+     * @return the number of flags that can be drawn (those with a weight above 0)
+     */
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * @param flagId the flag id
+     * @return the flag's weight
+     */
+    public int getWeight(int flagId) {
+        return weights[flagId];
+    }
+
+    /**
+     * Changes a flag's weight in O(1).
+     * @param flagId the flag id
+     * @param weight the new weight, from 0 (never drawn) to MAX_WEIGHT
+     */
+    public void setWeight(int flagId, int weight) {
+        if (weight < 0 || weight > MAX_WEIGHT)
+            throw new IllegalArgumentException("Weight " + weight + " is out of range");
+        if (weights[flagId] == weight)
+            return;
+
+        if (weights[flagId] > 0)
+            removeFromBucket(flagId, bucketOf(weights[flagId]));
+        weights[flagId] = weight;
+        if (weight > 0)
+            addToBucket(flagId, bucketOf(weight));
+    }
+
+    /**
+     * Draws one flag with probability proportional to its weight.
+     * @param random the random number generator to draw with
+     * @return the flag id
+     * @throws IllegalStateException if no flag has a weight above 0
+     */
+    public int next(Random random) {
+        if (flagCount == 0)
+            throw new IllegalStateException("No flags to draw");
+
+        while (true) {
+            // Pick a bucket in proportion to the weight its flags could have at most.
+            long point = nextLong(random, totalCapacity);
+            int bucket = 0;
+            while (point >= capacityOf(bucket)) {
+                point -= capacityOf(bucket);
+                ++bucket;
+            }
+
+            // Pick a flag of the bucket and keep it in proportion to its actual weight.
+            int flagId = buckets[bucket][random.nextInt(bucketSizes[bucket])];
+            if (random.nextDouble() * (2L << bucket) < weights[flagId])
+                return flagId;
+        }
+    }
+
+    /**
+     * Draws count distinct flags, each draw in proportion to the weights of the flags not
+     * drawn yet. The weights are the same afterwards.
+     * @param count the number of flags to draw
+     * @param random the random number generator to draw with
+     * @param out receives the drawn flag ids in its first count elements
+     * @throws IllegalArgumentException if fewer than count flags have a weight above 0
+     */
+    public void sample(int count, Random random, int[] out) {
+        if (count > flagCount)
+            throw new IllegalArgumentException("Can't draw " + count +
+                    " flags from " + flagCount);
+        if (count > out.length)
+            throw new IllegalArgumentException("Output holds only " + out.length + " flags");
+
+        // Take each drawn flag out of the draw, remembering its weight.
+        if (drawnWeights.length < count)
+            drawnWeights = new int[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = next(random);
+            drawnWeights[i] = weights[out[i]];
+            setWeight(out[i], 0);
+        }
+        for (int i = 0; i < count; i++)
+            setWeight(out[i], drawnWeights[i]);
+    }
+
+    private void addToBucket(int flagId, int bucket) {
+        if (bucketSizes[bucket] == buckets[bucket].length)
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], bucketSizes[bucket] * 2);
+        positions[flagId] = bucketSizes[bucket];
+        buckets[bucket][bucketSizes[bucket]++] = flagId;
+        totalCapacity += 2L << bucket;
+        ++flagCount;
+    }
+
+    private void removeFromBucket(int flagId, int bucket) {
+        // Move the bucket's last flag into the removed flag's place.
+        int last = buckets[bucket][--bucketSizes[bucket]];
+        buckets[bucket][positions[flagId]] = last;
+        positions[last] = positions[flagId];
+        totalCapacity -= 2L << bucket;
+        --flagCount;
+    }
+
+    private long capacityOf(int bucket) {
+        return (long) bucketSizes[bucket] << (bucket + 1);
+    }
+
+    private static int bucketOf(int weight) {
+        return 31 - Integer.numberOfLeadingZeros(weight);
+    }
+
+    // A uniform long in [0, bound).
+    private static long nextLong(Random random, long bound) {
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+}
@@ -0,0 +1,114 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.util.Arrays;
+
+/**
+ * LatencyHistogram counts non-negative values (normally durations in microseconds) in
+ * log-linear buckets: each power of two is split into 8 equal buckets, so any recorded value
+ * is reported within 12.5% while the histogram stays a fixed array of counts. Recording is
+ * O(1) and never allocates, which keeps it cheap enough for the quiz's hot paths.
+ *
+ * Percentiles are answered with the upper bound of the bucket they fall in (capped at the
+ * largest value recorded), so they never understate a latency.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets per power of two.
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT]; // Number of values in each bucket.
+    private long count; // Number of values recorded.
+    private long max; // Largest value recorded.
+
+    /**
+     * Records a value; negative values are counted as 0.
+     * @param value the value to record
+     */
+    public synchronized void record(long value) {
+        if (value < 0)
+            value = 0;
+        ++counts[bucketOf(value)];
+        ++count;
+        max = Math.max(max, value);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile the percentile, from 0 to 100 (e.g. 99 for the 99th percentile)
+     * @return a value at least as large as the given percentile of the recorded values,
+     *         within 12.5% of it, or 0 if nothing has been recorded
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank)
+                return Math.min(upperBoundOf(bucket), max);
+        }
+        return max;
+    }
+
+    /**
+     * Adds every value recorded in another histogram to this one.
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        long[] otherCounts;
+        long otherCount;
+        long otherMax;
+        synchronized (other) {
+            otherCounts = other.counts.clone();
+            otherCount = other.count;
+            otherMax = other.max;
+        }
+
+        synchronized (this) {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+                counts[bucket] += otherCounts[bucket];
+            count += otherCount;
+            max = Math.max(max, otherMax);
+        }
+    }
+
+    /**
+     * Discards every recorded value.
+     */
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+
+    // Values below SUB_BUCKETS get a bucket each; above that, each power of two is split
+    // into SUB_BUCKETS buckets by the bits following its highest bit.
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // The largest value that falls in the bucket.
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int highestBit = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS)
+                << (highestBit - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (highestBit - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,608 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * QuizEngine contains the flag quiz logic without any user interface: it draws the flags of
+ * a quiz from the enabled regions, builds each question (the flag plus its answer choices),
+ * checks guesses and keeps the score. The quiz screen shows the engine's current question
+ * and passes the user's guesses to it.
+ *
+ * A quiz is started with reset() and each question with nextQuestion(). Questions are built
+ * without allocating, so the engine can be measured and run at scale off the device.
+ *
+ * With setAdaptive(true) the quiz's flags are drawn by a FlagScheduler in proportion to a
+ * weight that follows each flag's level, in the style of Leitner boxes: a miss on the first
+ * guess drops the flag to level 0 (the highest weight), a first-guess hit moves it up a level
+ * and halves its weight, down to MAX_LEVEL. Levels can be seeded from a QuizHistory.
+ *
+ * With setHardMode(true) the wrong answers are drawn from the flags that look most like the
+ * correct one (see FlagNeighbors), topped up from the enabled regions if too few of them are
+ * enabled.
+ *
+ * saveState() captures the quiz in progress in a few dozen bytes, and restoreState() brings
+ * back the exact question, answer choices and score, e.g. after the app's process was killed.
+ */
+public class QuizEngine {
+    private static final byte STATE_VERSION = 1; // Format of saveState().
+
+    // Number of flags in a quiz unless changed with setQuizLength.
+    public static final int DEFAULT_QUIZ_LENGTH = 10;
+
+    // Number of answer choices per question unless changed with setChoiceCount.
+    public static final int DEFAULT_CHOICE_COUNT = 4;
+
+    // Highest level of a flag; the weight of a flag is 2^(MAX_LEVEL - level).
+    public static final int MAX_LEVEL = 4;
+
+    // Level of a flag that has no history.
+    public static final int NEW_FLAG_LEVEL = 1;
+
+    private final FlagCatalogSource catalog; // The flags the quiz is drawn from.
+    private Random random; // Randomizes the flags, wrong answers and answer positions.
+    private final FlagSampler sampler; // Draws flags and wrong answers from enabled regions.
+    private final boolean[] regionEnabled; // Whether each region's flags are in the pool.
+    private final FlagScheduler scheduler; // Draws adaptive quizzes by the flags' levels.
+    private final byte[] levels; // Level of each flag, from 0 (often missed) to MAX_LEVEL.
+    private boolean adaptive; // Whether quizzes are drawn by the scheduler.
+    private FlagNeighbors neighbors; // Look-alikes of each flag, or null if not available.
+    private int[] neighborFlagIds = new int[0]; // Enabled look-alikes of the current flag.
+    private boolean hardMode; // Whether wrong answers are drawn from the look-alikes.
+
+    private int quizLength; // Number of flags a quiz should have.
+    private int choiceCount; // Number of answer choices per question.
+
+    private int[] quizFlagIds; // Flag ids drawn for the current quiz.
+    private int flagsInQuiz; // Number of flags in the current quiz.
+    private int nextFlagIndex; // Position of the next flag in quizFlagIds.
+    private int correctFlagId = -1; // Flag id of the current question, or -1 if none.
+    private int correctChoice = -1; // Position of the correct answer, or -1 if none.
+    private int[] choiceFlagIds; // Flag ids of the current question's answer choices.
+    private boolean[] guessedChoices; // Whether each answer choice has been guessed.
+    private boolean questionGuessed; // Whether the current question has any guess yet.
+    private int[] distractorFlagIds; // Receives the wrong answers of each question.
+    private int totalGuesses; // Total number of guesses made in the current quiz.
+    private int correctAnswers; // Number of correct guesses in the current quiz.
+
+    /**
+     * Creates an engine with every region of the catalog enabled.
+     * @param catalog the flags to draw quizzes from
+     * @param random the random number generator to randomize quizzes with
+     */
+    public QuizEngine(FlagCatalogSource catalog, Random random) {
+        this.catalog = catalog;
+        this.random = random;
+        quizLength = DEFAULT_QUIZ_LENGTH;
+        quizFlagIds = new int[DEFAULT_QUIZ_LENGTH];
+        setChoiceCount(DEFAULT_CHOICE_COUNT);
+
+        sampler = new FlagSampler(catalog.getFlagCount());
+        scheduler = new FlagScheduler(catalog.getFlagCount());
+        levels = new byte[catalog.getFlagCount()];
+        Arrays.fill(levels, (byte) NEW_FLAG_LEVEL);
+        regionEnabled = new boolean[catalog.getRegionCount()];
+        for (int region = 0; region < regionEnabled.length; region++)
+            setRegionEnabled(region, true);
+    }
+
+    public FlagCatalogSource getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Replaces the random number generator, starting with the next question. Passing a
+     * seeded generator, such as new XoroshiroRandom(seed), makes quizzes repeatable.
+     * @param random the random number generator to use
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Enables only the given regions, starting with the next reset. Only the flags of regions
+     * that are enabled or disabled by this call are added to or removed from the pool.
+     * @param regions the region (asset folder) names; unknown names are ignored
+     * @return the number of flags in the enabled regions
+     */
+    public int setRegions(Collection<String> regions) {
+        boolean[] enable = new boolean[regionEnabled.length];
+        for (String region : regions) {
+            int regionIndex = catalog.indexOfRegion(region);
+            if (regionIndex >= 0)
+                enable[regionIndex] = true;
+        }
+
+        for (int region = 0; region < enable.length; region++)
+            setRegionEnabled(region, enable[region]);
+        return sampler.getPoolSize();
+    }
+
+    /**
+     * Adds a region's flags to the pool or removes them, starting with the next reset.
+     * The current quiz must be reset before its next question if its flags might be removed.
+     * @param regionIndex the region's index in the catalog
+     * @param enabled whether the region's flags should be in the quiz
+     */
+    public void setRegionEnabled(int regionIndex, boolean enabled) {
+        if (regionEnabled[regionIndex] == enabled)
+            return;
+
+        regionEnabled[regionIndex] = enabled;
+        for (int id = catalog.getRegionStart(regionIndex);
+             id < catalog.getRegionEnd(regionIndex); id++) {
+            if (enabled) {
+                sampler.add(id);
+                scheduler.setWeight(id, weightOf(levels[id]));
+            }
+            else {
+                sampler.remove(id);
+                scheduler.setWeight(id, 0);
+            }
+        }
+    }
+
+    /**
+     * Chooses between drawing each quiz's flags uniformly (the default) and in proportion
+     * to their levels' weights, starting with the next reset.
+     * @param adaptive true to favour the flags that are missed
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Sets the look-alikes of each flag, used for the wrong answers in hard mode.
+     * @param neighbors the table read from the same assets as the catalog, or null
+     * @throws IllegalArgumentException if the table doesn't match the catalog
+     */
+    public void setNeighbors(FlagNeighbors neighbors) {
+        if (neighbors != null && neighbors.getFlagCount() != catalog.getFlagCount())
+            throw new IllegalArgumentException("The neighbour table has " +
+                    neighbors.getFlagCount() + " flags, the catalog " + catalog.getFlagCount());
+
+        this.neighbors = neighbors;
+        if (neighbors != null && neighbors.getNeighborCount() > neighborFlagIds.length)
+            neighborFlagIds = new int[neighbors.getNeighborCount()];
+    }
+
+    /**
+     * Chooses between drawing wrong answers uniformly from the enabled regions (the default)
+     * and from the flags that look most like the correct answer, starting with the next
+     * question. Hard mode draws uniformly while no neighbour table is set.
+     * @param hardMode true to draw look-alike wrong answers
+     */
+    public void setHardMode(boolean hardMode) {
+        this.hardMode = hardMode;
+    }
+
+    public boolean isHardMode() {
+        return hardMode;
+    }
+
+    /**
+     * @param flagId the flag id
+     * @return the flag's level, from 0 (often missed) to MAX_LEVEL
+     */
+    public int getFlagLevel(int flagId) {
+        return levels[flagId];
+    }
+
+    /**
+     * Sets a flag's level and with it the flag's weight in adaptive quizzes, in O(1).
+     * @param flagId the flag id
+     * @param level the level, from 0 (often missed) to MAX_LEVEL
+     */
+    public void setFlagLevel(int flagId, int level) {
+        if (level < 0 || level > MAX_LEVEL)
+            throw new IllegalArgumentException("Level " + level + " is out of range");
+
+        levels[flagId] = (byte) level;
+        if (sampler.contains(flagId))
+            scheduler.setWeight(flagId, weightOf(level));
+    }
+
+    /**
+     * Seeds the level of every flag the history has guesses for from its accuracy, e.g. when
+     * the app starts. Flags answered correctly at least 90% of the time start at MAX_LEVEL,
+     * flags missed at least half the time at level 0.
+     * @param history the guesses recorded on this device
+     */
+    public void applyHistory(QuizHistory history) {
+        for (int id = 0; id < levels.length; id++) {
+            if (history.getGuessCount(id) == 0)
+                continue;
+
+            double accuracy = history.getAccuracy(id);
+            int level = accuracy >= 0.9 ? MAX_LEVEL : accuracy >= 0.75 ? 3 :
+                    accuracy >= 0.6 ? 2 : accuracy >= 0.5 ? 1 : 0;
+            setFlagLevel(id, level);
+        }
+    }
+
+    private static int weightOf(int level) {
+        return 1 << (MAX_LEVEL - level);
+    }
+
+    /**
+     * @param regionIndex the region's index in the catalog
+     * @return true if the region's flags are in the quiz
+     */
+    public boolean isRegionEnabled(int regionIndex) {
+        return regionEnabled[regionIndex];
+    }
+
+    /**
+     * @return the number of flags in the enabled regions
+     */
+    public int getPoolSize() {
+        return sampler.getPoolSize();
+    }
+
+    /**
+     * Sets the number of flags in each quiz, starting with the next reset. Quizzes drawn from
+     * fewer flags than this are shortened to the number of flags available.
+     * @param length the number of flags in a quiz
+     */
+    public void setQuizLength(int length) {
+        if (length < 1)
+            throw new IllegalArgumentException("A quiz needs at least one flag");
+        if (length > quizFlagIds.length)
+            quizFlagIds = new int[length];
+        quizLength = length;
+    }
+
+    /**
+     * Sets the number of answer choices, starting with the next question.
+     * @param count the number of choices, including the correct answer
+     */
+    public void setChoiceCount(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("A question needs at least one choice");
+        if (choiceFlagIds == null || count > choiceFlagIds.length) {
+            choiceFlagIds = new int[count];
+            guessedChoices = new boolean[count];
+            distractorFlagIds = new int[count - 1];
+        }
+        choiceCount = count;
+    }
+
+    public int getChoiceCount() {
+        return choiceCount;
+    }
+
+    /**
+     * Starts a new quiz: clears the score and draws the quiz's flags from the enabled regions.
+     * Call nextQuestion() to get the first question.
+     * @throws IllegalStateException if no flags are enabled
+     */
+    public void reset() {
+        if (sampler.getPoolSize() == 0)
+            throw new IllegalStateException("No flags in the enabled regions");
+
+        correctAnswers = 0;
+        totalGuesses = 0;
+        nextFlagIndex = 0;
+        correctFlagId = -1;
+        correctChoice = -1;
+
+        // A quiz can't have more flags than the enabled regions contain.
+        flagsInQuiz = Math.min(quizLength, sampler.getPoolSize());
+        if (adaptive)
+            scheduler.sample(flagsInQuiz, random, quizFlagIds);
+        else
+            sampler.sample(flagsInQuiz, random, quizFlagIds);
+    }
+
+    /**
+     * @return true if the quiz has flags that haven't been asked yet
+     */
+    public boolean hasNextQuestion() {
+        return nextFlagIndex < flagsInQuiz;
+    }
+
+    /**
+     * Moves to the next flag of the quiz and draws its answer choices: the correct answer at
+     * a random position and wrong answers from the enabled regions everywhere else (in hard
+     * mode, the flag's enabled look-alikes first).
+     * @throws IllegalStateException if every flag of the quiz has been asked
+     * @throws IllegalArgumentException if the enabled regions have fewer flags than choices
+     */
+    public void nextQuestion() {
+        if (!hasNextQuestion())
+            throw new IllegalStateException("No flags left in the quiz");
+
+        correctFlagId = quizFlagIds[nextFlagIndex++];
+        if (hardMode && neighbors != null)
+            pickLookAlikes(choiceCount - 1);
+        else
+            sampler.pickDistractors(correctFlagId, choiceCount - 1, random, distractorFlagIds);
+
+        correctChoice = random.nextInt(choiceCount);
+        int distractor = 0;
+        for (int choice = 0; choice < choiceCount; choice++) {
+            choiceFlagIds[choice] = choice == correctChoice ?
+                    correctFlagId : distractorFlagIds[distractor++];
+            guessedChoices[choice] = false;
+        }
+        questionGuessed = false;
+    }
+
+    // Draws count wrong answers for the current flag into distractorFlagIds, in random order:
+    // as many of its enabled look-alikes as possible, the rest uniformly from the other flags.
+    private void pickLookAlikes(int count) {
+        int candidates = 0;
+        for (int rank = 0; rank < neighbors.getNeighborCount(); rank++) {
+            int neighbor = neighbors.getNeighbor(correctFlagId, rank);
+            if (neighbor != correctFlagId && sampler.contains(neighbor))
+                neighborFlagIds[candidates++] = neighbor;
+        }
+
+        // Partial Fisher-Yates shuffle of the candidates into the end of the wrong answers.
+        int lookAlikes = Math.min(count, candidates);
+        int uniform = count - lookAlikes;
+        for (int i = 0; i < lookAlikes; i++) {
+            int j = i + random.nextInt(candidates - i);
+            int neighbor = neighborFlagIds[j];
+            neighborFlagIds[j] = neighborFlagIds[i];
+            neighborFlagIds[i] = neighbor;
+            distractorFlagIds[uniform + i] = neighbor;
+        }
+        if (uniform == 0)
+            return;
+
+        // Draw the rest with the chosen look-alikes out of the pool, then shuffle every wrong
+        // answer so the look-alikes don't always take the same positions.
+        for (int i = 0; i < lookAlikes; i++)
+            sampler.remove(neighborFlagIds[i]);
+        sampler.pickDistractors(correctFlagId, uniform, random, distractorFlagIds);
+        for (int i = 0; i < lookAlikes; i++)
+            sampler.add(neighborFlagIds[i]);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int flagId = distractorFlagIds[j];
+            distractorFlagIds[j] = distractorFlagIds[i];
+            distractorFlagIds[i] = flagId;
+        }
+    }
+
+    /**
+     * Returns a flag that will be asked later in the quiz, e.g. to load its image early.
+     * @param ahead 1 for the flag after the current one, 2 for the one after that, ...
+     * @return the flag id, or -1 if the quiz has fewer flags left
+     */
+    public int getUpcomingFlagId(int ahead) {
+        int index = nextFlagIndex + ahead - 1;
+        return index < flagsInQuiz ? quizFlagIds[index] : -1;
+    }
+
+    /**
+     * @return the flag id of the current question, or -1 before the first question
+     */
+    public int getCorrectFlagId() {
+        return correctFlagId;
+    }
+
+    /**
+     * @param choice the position of the answer choice, from 0 to getChoiceCount() - 1
+     * @return the flag id of the answer choice
+     */
+    public int getChoiceFlagId(int choice) {
+        return choiceFlagIds[choice];
+    }
+
+    /**
+     * @return the position of the current question's correct answer, or -1 before the first
+     *         question
+     */
+    public int getCorrectChoice() {
+        return correctChoice;
+    }
+
+    /**
+     * @param choice the position of the answer choice, from 0 to getChoiceCount() - 1
+     * @return true if the answer choice has been guessed in the current question
+     */
+    public boolean isChoiceGuessed(int choice) {
+        return guessedChoices[choice];
+    }
+
+    /**
+     * @return true if the current question has been answered correctly
+     */
+    public boolean isQuestionAnswered() {
+        return correctChoice >= 0 && guessedChoices[correctChoice];
+    }
+
+    /**
+     * Records a guess for the current question. The first guess of each question moves the
+     * flag's level up (if correct) or down to 0.
+     * @param choice the position of the chosen answer, from 0 to getChoiceCount() - 1
+     * @return true if the guess is correct
+     */
+    public boolean guess(int choice) {
+        if (choice < 0 || choice >= choiceCount)
+            throw new IllegalArgumentException("No choice " + choice);
+
+        ++totalGuesses;
+        guessedChoices[choice] = true;
+        boolean correct = choiceFlagIds[choice] == correctFlagId;
+        if (!questionGuessed) {
+            questionGuessed = true;
+            setFlagLevel(correctFlagId,
+                    correct ? Math.min(levels[correctFlagId] + 1, MAX_LEVEL) : 0);
+        }
+        if (!correct)
+            return false;
+
+        ++correctAnswers;
+        return true;
+    }
+
+    /**
+     * Records a typed guess for the current question, which may name any flag. A guess of one
+     * of the answer choices counts as a guess of that choice.
+     * @param flagId the flag id of the guessed country
+     * @return true if the guess is correct
+     */
+    public boolean guessFlag(int flagId) {
+        for (int choice = 0; choice < choiceCount; choice++)
+            if (choiceFlagIds[choice] == flagId)
+                return guess(choice);
+
+        ++totalGuesses;
+        if (!questionGuessed) {
+            questionGuessed = true;
+            setFlagLevel(correctFlagId, 0);
+        }
+        return false;
+    }
+
+    /**
+     * @return true once every flag of the quiz has been identified
+     */
+    public boolean isQuizComplete() {
+        return flagsInQuiz > 0 && correctAnswers == flagsInQuiz;
+    }
+
+    /**
+     * @return the number of the current question, starting at 1
+     */
+    public int getQuestionNumber() {
+        return nextFlagIndex;
+    }
+
+    public int getFlagsInQuiz() {
+        return flagsInQuiz;
+    }
+
+    public int getTotalGuesses() {
+        return totalGuesses;
+    }
+
+    public int getCorrectAnswers() {
+        return correctAnswers;
+    }
+
+    /**
+     * Captures the quiz in progress: its flags, the position in it, the current question's
+     * answer choices and which have been guessed, and the score. Flag ids are stored as
+     * 16-bit values, so a 10 flag quiz with 4 choices takes 45 bytes:
+     *
+     *   byte version, char catalog flag count, char flags in quiz, char next flag index,
+     *   char[flags in quiz] flag ids, byte choice count, char[choice count] choice flag ids,
+     *   byte[(choice count + 7) / 8] guessed choices bit mask,
+     *   int total guesses, int correct answers
+     *
+     * @return the saved state, to be passed to restoreState
+     */
+    public byte[] saveState() {
+        int maskBytes = (choiceCount + 7) / 8;
+        ByteBuffer state = ByteBuffer.allocate(
+                1 + 2 * 3 + 2 * flagsInQuiz + 1 + 2 * choiceCount + maskBytes + 4 * 2);
+
+        state.put(STATE_VERSION);
+        state.putChar((char) catalog.getFlagCount());
+        state.putChar((char) flagsInQuiz);
+        state.putChar((char) nextFlagIndex);
+        for (int i = 0; i < flagsInQuiz; i++)
+            state.putChar((char) quizFlagIds[i]);
+
+        state.put((byte) choiceCount);
+        for (int choice = 0; choice < choiceCount; choice++)
+            state.putChar((char) choiceFlagIds[choice]);
+        for (int maskByte = 0; maskByte < maskBytes; maskByte++) {
+            int mask = 0;
+            for (int bit = 0; bit < 8 && maskByte * 8 + bit < choiceCount; bit++)
+                if (guessedChoices[maskByte * 8 + bit])
+                    mask |= 1 << bit;
+            state.put((byte) mask);
+        }
+
+        state.putInt(totalGuesses);
+        state.putInt(correctAnswers);
+        return state.array();
+    }
+
+    /**
+     * Restores a quiz saved with saveState(), including its current question, without
+     * drawing anything. The state is rejected, leaving the engine unchanged, if it doesn't
+     * match the catalog or has flags outside the enabled regions.
+     * @param saved the state returned by saveState()
+     * @return true if the quiz was restored
+     */
+    public boolean restoreState(byte[] saved) {
+        try {
+            ByteBuffer state = ByteBuffer.wrap(saved);
+            if (state.get() != STATE_VERSION || state.getChar() != catalog.getFlagCount())
+                return false;
+
+            int savedFlagsInQuiz = state.getChar();
+            int savedNextFlagIndex = state.getChar();
+            if (savedFlagsInQuiz == 0 || savedNextFlagIndex > savedFlagsInQuiz)
+                return false;
+            int[] savedQuizFlagIds = new int[Math.max(savedFlagsInQuiz, quizFlagIds.length)];
+            for (int i = 0; i < savedFlagsInQuiz; i++) {
+                savedQuizFlagIds[i] = state.getChar();
+                if (!sampler.contains(savedQuizFlagIds[i]))
+                    return false;
+            }
+
+            int savedChoiceCount = state.get();
+            if (savedChoiceCount < 1 || savedChoiceCount > sampler.getPoolSize())
+                return false;
+            int[] savedChoiceFlagIds = new int[savedChoiceCount];
+            for (int choice = 0; choice < savedChoiceCount; choice++) {
+                savedChoiceFlagIds[choice] = state.getChar();
+                if (!sampler.contains(savedChoiceFlagIds[choice]))
+                    return false;
+            }
+            boolean[] savedGuessedChoices = new boolean[savedChoiceCount];
+            for (int maskByte = 0; maskByte < (savedChoiceCount + 7) / 8; maskByte++) {
+                int mask = state.get();
+                for (int bit = 0; bit < 8 && maskByte * 8 + bit < savedChoiceCount; bit++)
+                    savedGuessedChoices[maskByte * 8 + bit] = (mask & (1 << bit)) != 0;
+            }
+
+            // The current question's flag must be one of its choices.
+            int savedCorrectFlagId = -1;
+            int savedCorrectChoice = -1;
+            if (savedNextFlagIndex > 0) {
+                savedCorrectFlagId = savedQuizFlagIds[savedNextFlagIndex - 1];
+                for (int choice = 0; choice < savedChoiceCount; choice++)
+                    if (savedChoiceFlagIds[choice] == savedCorrectFlagId)
+                        savedCorrectChoice = choice;
+                if (savedCorrectChoice < 0)
+                    return false;
+            }
+
+            int savedTotalGuesses = state.getInt();
+            int savedCorrectAnswers = state.getInt();
+
+            setChoiceCount(savedChoiceCount);
+            quizFlagIds = savedQuizFlagIds;
+            flagsInQuiz = savedFlagsInQuiz;
+            nextFlagIndex = savedNextFlagIndex;
+            correctFlagId = savedCorrectFlagId;
+            correctChoice = savedCorrectChoice;
+            System.arraycopy(savedChoiceFlagIds, 0, choiceFlagIds, 0, savedChoiceCount);
+            System.arraycopy(savedGuessedChoices, 0, guessedChoices, 0, savedChoiceCount);
+            questionGuessed = false;
+            for (boolean guessed : savedGuessedChoices)
+                questionGuessed |= guessed;
+            totalGuesses = savedTotalGuesses;
+            correctAnswers = savedCorrectAnswers;
+            return true;
+        }
+        catch (BufferUnderflowException e) {
+            return false; // Truncated state.
+        }
+    }
+}
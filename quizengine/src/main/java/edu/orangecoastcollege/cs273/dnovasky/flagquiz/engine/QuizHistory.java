@@ -0,0 +1,460 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuizHistory is an on-disk record of every guess ever made, kept as per-flag and per-region
+ * totals so that questions like "which flags are missed most" or "how accurate is the user in
+ * Europe" are answered from arrays sized by the catalog, never by replaying the history.
+ *
+ * Guesses are buffered in memory and handed in batches to a background thread, which appends
+ * them to a log of 4 byte records. Once the log holds COMPACT_EVENTS guesses it is compacted:
+ * the totals are written to a new aggregate file that names the next log generation, and the
+ * old log is deleted. A crash at any point loses at most the unflushed buffer; a log left
+ * behind by an interrupted compaction belongs to an older generation and is ignored, and a
+ * record torn by a crash mid-append is cut off the log before anything is appended after it.
+ * The aggregate file also holds a hash of the catalog's file names, so a history is never
+ * applied to a catalog whose flag ids mean other flags.
+ *
+ * recordGuess, flush and the queries must all be called on the same thread (the quiz's main
+ * thread); only the file writes happen in the background.
+ */
+public class QuizHistory {
+    // Guesses buffered before they are written to the log.
+    public static final int BATCH_EVENTS = 64;
+
+    // Guesses in the log that trigger a compaction into the aggregate file.
+    public static final int COMPACT_EVENTS = 4096;
+
+    private static final String AGGREGATE_FILE = "history.agg";
+    private static final String LOG_PREFIX = "history-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final int MAGIC = 0x464C4748; // "FLGH"
+    private static final int VERSION = 2;
+
+    // Log records are a char with the flag id and correctness bit, then a char with the
+    // response time in milliseconds, capped at MAX_RESPONSE_MILLIS.
+    private static final int RECORD_BYTES = 4;
+    private static final int CORRECT_BIT = 0x8000;
+    private static final int MAX_RESPONSE_MILLIS = 0xFFFF;
+
+    // Flags a history can record: the flag ids that fit in a record beside CORRECT_BIT.
+    public static final int MAX_FLAGS = CORRECT_BIT;
+
+    private final File directory; // Holds the aggregate file and the logs.
+    private final int[] regionOfFlag; // Region index of each flag id.
+    private final long catalogHash; // Hash of the catalog's file names, in flag id order.
+    private final ExecutorService writer; // Appends batches and compacts, in order.
+
+    // Totals including buffered guesses; used by the queries.
+    private final Totals live;
+    private final Totals regions;
+
+    // Totals of what is on disk; only touched by the writer thread after open.
+    private final Totals persisted;
+    private int generation; // Generation of the current log.
+    private int loggedEvents; // Guesses in the current log.
+
+    private byte[] buffer = new byte[BATCH_EVENTS * RECORD_BYTES]; // Unflushed guesses.
+    private int bufferedEvents; // Number of guesses in buffer.
+    private volatile IOException lastError; // Last error writing in the background, or null.
+
+    /**
+     * Per-flag (or per-region) totals of the guesses.
+     */
+    private static class Totals {
+        final int[] guesses; // All guesses made for the flag.
+        final int[] correct; // Correct guesses.
+        final long[] responseMillis; // Sum of the response times of the correct guesses.
+
+        Totals(int size) {
+            guesses = new int[size];
+            correct = new int[size];
+            responseMillis = new long[size];
+        }
+
+        void add(int index, boolean isCorrect, int millis) {
+            ++guesses[index];
+            if (isCorrect) {
+                ++correct[index];
+                responseMillis[index] += millis;
+            }
+        }
+
+        void copyFrom(Totals other) {
+            System.arraycopy(other.guesses, 0, guesses, 0, guesses.length);
+            System.arraycopy(other.correct, 0, correct, 0, correct.length);
+            System.arraycopy(other.responseMillis, 0, responseMillis, 0, responseMillis.length);
+        }
+    }
+
+    private QuizHistory(File directory, FlagCatalogSource catalog) {
+        this.directory = directory;
+        regionOfFlag = new int[catalog.getFlagCount()];
+        for (int region = 0; region < catalog.getRegionCount(); region++)
+            Arrays.fill(regionOfFlag, catalog.getRegionStart(region),
+                    catalog.getRegionEnd(region), region);
+        catalogHash = hashFileNames(catalog);
+
+        live = new Totals(catalog.getFlagCount());
+        regions = new Totals(catalog.getRegionCount());
+        persisted = new Totals(catalog.getFlagCount());
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FlagQuiz history");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // 64 bit FNV-1a over the file names, each followed by a 0 char.
+    private static long hashFileNames(FlagCatalogSource catalog) {
+        long hash = 0xCBF29CE484222325L;
+        for (int id = 0; id < catalog.getFlagCount(); id++) {
+            String fileName = catalog.getFileName(id);
+            for (int i = 0; i <= fileName.length(); i++) {
+                hash ^= i < fileName.length() ? fileName.charAt(i) : 0;
+                hash *= 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Opens the history stored in a directory, reading its totals and replaying the current
+     * log. This reads files, so it should be called off the main thread. A history written
+     * for a different catalog is discarded, since its flag ids would mean other flags.
+     * @param directory the directory to keep the history in; created if needed
+     * @param catalog the flag catalog the history's flag ids refer to
+     * @return the history
+     * @throws IOException if the directory can't be created or the files can't be read
+     * @throws IllegalArgumentException if the catalog has more than MAX_FLAGS flags
+     */
+    public static QuizHistory open(File directory, FlagCatalogSource catalog)
+            throws IOException {
+        if (catalog.getFlagCount() > MAX_FLAGS)
+            throw new IllegalArgumentException("A history records at most " + MAX_FLAGS +
+                    " flags, the catalog has " + catalog.getFlagCount());
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Can't create " + directory);
+
+        QuizHistory history = new QuizHistory(directory, catalog);
+        history.load();
+        return history;
+    }
+
+    private void load() throws IOException {
+        File aggregate = new File(directory, AGGREGATE_FILE);
+        boolean fresh = false; // Whether there is no history of this catalog on disk.
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(aggregate)))) {
+            if (in.readInt() == MAGIC && in.readUnsignedShort() == VERSION &&
+                    in.readInt() == persisted.guesses.length && in.readLong() == catalogHash) {
+                generation = in.readInt();
+                for (int id = 0; id < persisted.guesses.length; id++) {
+                    persisted.guesses[id] = in.readInt();
+                    persisted.correct[id] = in.readInt();
+                    persisted.responseMillis[id] = in.readLong();
+                }
+            }
+            else {
+                fresh = true; // A different catalog or format.
+            }
+        }
+        catch (FileNotFoundException e) {
+            fresh = true; // No history yet.
+        }
+        catch (EOFException e) {
+            throw new IOException("Truncated " + AGGREGATE_FILE, e);
+        }
+
+        if (fresh) {
+            // Start over with an empty aggregate, so that the log written next is always
+            // vouched for by the catalog hash; deleteOldLogs below removes the other logs.
+            generation = 0;
+            File log = logFile(0);
+            if (log.exists() && !log.delete())
+                throw new IOException("Can't delete " + log);
+            writeAggregate(0);
+        }
+
+        // Replay the current log; a partial record at its end is dropped and cut off, or the
+        // next batch appended after it would be read out of step.
+        File log = logFile(generation);
+        if (log.exists()) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(log))) {
+                byte[] record = new byte[RECORD_BYTES];
+                while (readFully(in, record)) {
+                    int flag = ((record[0] & 0xFF) << 8) | (record[1] & 0xFF);
+                    int millis = ((record[2] & 0xFF) << 8) | (record[3] & 0xFF);
+                    int id = flag & ~CORRECT_BIT;
+                    if (id < persisted.guesses.length)
+                        persisted.add(id, (flag & CORRECT_BIT) != 0, millis);
+                    ++loggedEvents;
+                }
+            }
+            long length = (long) loggedEvents * RECORD_BYTES;
+            if (log.length() != length) {
+                try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                    file.setLength(length);
+                }
+            }
+        }
+        deleteOldLogs();
+
+        live.copyFrom(persisted);
+        for (int id = 0; id < regionOfFlag.length; id++) {
+            int region = regionOfFlag[id];
+            regions.guesses[region] += live.guesses[id];
+            regions.correct[region] += live.correct[id];
+            regions.responseMillis[region] += live.responseMillis[id];
+        }
+    }
+
+    private static boolean readFully(InputStream in, byte[] record) throws IOException {
+        int read = 0;
+        while (read < record.length) {
+            int count = in.read(record, read, record.length - read);
+            if (count < 0)
+                return false;
+            read += count;
+        }
+        return true;
+    }
+
+    /**
+     * Records a guess. It counts in the queries at once and is written in the next batch.
+     * @param flagId the flag id of the question
+     * @param correct whether the guess was correct
+     * @param responseMillis the time from the question being shown to the guess
+     */
+    public void recordGuess(int flagId, boolean correct, long responseMillis) {
+        int millis = (int) Math.max(0, Math.min(responseMillis, MAX_RESPONSE_MILLIS));
+        live.add(flagId, correct, millis);
+        regions.add(regionOfFlag[flagId], correct, millis);
+
+        int flag = flagId | (correct ? CORRECT_BIT : 0);
+        int offset = bufferedEvents * RECORD_BYTES;
+        buffer[offset] = (byte) (flag >>> 8);
+        buffer[offset + 1] = (byte) flag;
+        buffer[offset + 2] = (byte) (millis >>> 8);
+        buffer[offset + 3] = (byte) millis;
+        if (++bufferedEvents == BATCH_EVENTS)
+            flush();
+    }
+
+    /**
+     * Hands the buffered guesses to the background thread to be written, e.g. when the app
+     * goes to the background.
+     */
+    public void flush() {
+        if (bufferedEvents == 0)
+            return;
+
+        final byte[] batch = buffer;
+        final int batchEvents = bufferedEvents;
+        buffer = new byte[BATCH_EVENTS * RECORD_BYTES];
+        bufferedEvents = 0;
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(batch, batchEvents);
+            }
+        });
+    }
+
+    /**
+     * Flushes the buffered guesses and waits for every write to finish. The history can't
+     * record guesses after this.
+     * @throws IOException if the last background write failed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void close() throws IOException, InterruptedException {
+        flush();
+        writer.shutdown();
+        writer.awaitTermination(1, TimeUnit.MINUTES);
+        if (lastError != null)
+            throw lastError;
+    }
+
+    /**
+     * @return the last error writing the history in the background, or null if none
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    // Runs on the writer thread.
+    private void write(byte[] batch, int batchEvents) {
+        try (OutputStream out = new FileOutputStream(logFile(generation), true)) {
+            out.write(batch, 0, batchEvents * RECORD_BYTES);
+        }
+        catch (IOException e) {
+            lastError = e; // The batch is lost, but the totals in memory still count it.
+            return;
+        }
+
+        for (int event = 0; event < batchEvents; event++) {
+            int offset = event * RECORD_BYTES;
+            int flag = ((batch[offset] & 0xFF) << 8) | (batch[offset + 1] & 0xFF);
+            int millis = ((batch[offset + 2] & 0xFF) << 8) | (batch[offset + 3] & 0xFF);
+            persisted.add(flag & ~CORRECT_BIT, (flag & CORRECT_BIT) != 0, millis);
+        }
+        loggedEvents += batchEvents;
+
+        if (loggedEvents >= COMPACT_EVENTS)
+            compact();
+    }
+
+    // Writes the persisted totals for the next generation and deletes the current log.
+    // Runs on the writer thread.
+    private void compact() {
+        try {
+            writeAggregate(generation + 1);
+        }
+        catch (IOException e) {
+            lastError = e; // Keep appending to the current log and try again next batch.
+            return;
+        }
+        ++generation;
+        loggedEvents = 0;
+        deleteOldLogs();
+    }
+
+    // Replaces the aggregate file with the persisted totals, naming a log generation.
+    private void writeAggregate(int logGeneration) throws IOException {
+        File aggregate = new File(directory, AGGREGATE_FILE);
+        File temporary = new File(directory, AGGREGATE_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(persisted.guesses.length);
+            out.writeLong(catalogHash);
+            out.writeInt(logGeneration);
+            for (int id = 0; id < persisted.guesses.length; id++) {
+                out.writeInt(persisted.guesses[id]);
+                out.writeInt(persisted.correct[id]);
+                out.writeLong(persisted.responseMillis[id]);
+            }
+        }
+        if (!temporary.renameTo(aggregate))
+            throw new IOException("Can't replace " + aggregate);
+    }
+
+    private void deleteOldLogs() {
+        File[] files = directory.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX) &&
+                    !file.equals(logFile(generation)))
+                file.delete();
+        }
+    }
+
+    private File logFile(int logGeneration) {
+        return new File(directory, LOG_PREFIX + logGeneration + LOG_SUFFIX);
+    }
+
+    /**
+     * @param flagId the flag id
+     * @return the number of guesses made for the flag
+     */
+    public int getGuessCount(int flagId) {
+        return live.guesses[flagId];
+    }
+
+    /**
+     * @param flagId the flag id
+     * @return the fraction of the flag's guesses that were correct, or 0 if it has none
+     */
+    public double getAccuracy(int flagId) {
+        return accuracy(live, flagId);
+    }
+
+    /**
+     * @param flagId the flag id
+     * @return the mean time to the correct answer in milliseconds, or 0 if it has none
+     */
+    public long getMeanResponseMillis(int flagId) {
+        return meanResponseMillis(live, flagId);
+    }
+
+    /**
+     * @param region the region index in the catalog
+     * @return the fraction of the region's guesses that were correct, or 0 if it has none
+     */
+    public double getRegionAccuracy(int region) {
+        return accuracy(regions, region);
+    }
+
+    /**
+     * @param region the region index in the catalog
+     * @return the mean time to the correct answer in milliseconds, or 0 if it has none
+     */
+    public long getRegionMeanResponseMillis(int region) {
+        return meanResponseMillis(regions, region);
+    }
+
+    /**
+     * Finds the flags with the most wrong guesses.
+     * @param out receives the flag ids, most missed first; its length is the number wanted
+     * @return the number of flag ids stored in out (flags that were never missed are left
+     *         out, so this can be fewer than out.length)
+     */
+    public int getMostMissedFlags(int[] out) {
+        int found = 0;
+        for (int id = 0; id < live.guesses.length; id++) {
+            int misses = live.guesses[id] - live.correct[id];
+            if (misses == 0)
+                continue;
+
+            // Insert into the sorted top list if the flag makes it.
+            int position = found;
+            while (position > 0 && misses > missesOf(out[position - 1]))
+                --position;
+            if (position >= out.length)
+                continue;
+            int end = Math.min(found, out.length - 1);
+            System.arraycopy(out, position, out, position + 1, end - position);
+            out[position] = id;
+            found = Math.min(found + 1, out.length);
+        }
+        return found;
+    }
+
+    private int missesOf(int flagId) {
+        return live.guesses[flagId] - live.correct[flagId];
+    }
+
+    private static double accuracy(Totals totals, int index) {
+        return totals.guesses[index] == 0 ? 0 :
+                (double) totals.correct[index] / totals.guesses[index];
+    }
+
+    private static long meanResponseMillis(Totals totals, int index) {
+        return totals.correct[index] == 0 ? 0 :
+                totals.responseMillis[index] / totals.correct[index];
+    }
+}
@@ -0,0 +1,99 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * XoroshiroRandom is a fast, non-cryptographic random number generator (xoroshiro128+)
+ * for randomizing quizzes. It extends Random so it can be used anywhere a Random is
+ * expected, but unlike Random it is not thread-safe and unlike SecureRandom it never blocks
+ * while seeding. Two instances created with the same seed produce the same numbers.
+ *
+ * The 128-bit state is seeded from a 64-bit seed with SplitMix64, as recommended by the
+ * generator's authors.
+ */
+public class XoroshiroRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    // Makes generators created in the same nanosecond differ.
+    private static final AtomicLong seedUniquifier = new AtomicLong(0x2545F4914F6CDD1DL);
+
+    // Generator state; never both zero. Set by setSeed(), which Random's constructor calls.
+    private long state0;
+    private long state1;
+
+    /**
+     * Creates a generator with a seed that differs from any other generator's.
+     */
+    public XoroshiroRandom() {
+        this(seedUniquifier.addAndGet(0x9E3779B97F4A7C15L) ^ System.nanoTime());
+    }
+
+    /**
+     * Creates a generator that produces the same numbers as any other with the same seed.
+     * @param seed the seed
+     */
+    public XoroshiroRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Resets the generator to the state given by the seed.
+     * @param seed the seed
+     */
+    @Override
+    public void setSeed(long seed) {
+        state0 = splitMix64(seed);
+        state1 = splitMix64(seed + 0x9E3779B97F4A7C15L);
+        if (state0 == 0 && state1 == 0)
+            state1 = 1;
+    }
+
+    @Override
+    public long nextLong() {
+        long s0 = state0;
+        long s1 = state1;
+        long result = s0 + s1;
+
+        s1 ^= s0;
+        state0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+        state1 = Long.rotateLeft(s1, 37);
+        return result;
+    }
+
+    @Override
+    protected int next(int bits) {
+        // The high bits of xoroshiro128+ are the strongest.
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Returns a uniformly distributed int from 0 (inclusive) to bound (exclusive), using a
+     * multiply and shift instead of Random's division.
+     * @param bound the upper bound (exclusive); must be positive
+     * @return the random int
+     */
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+
+        // Lemire's method: the high 32 bits of a 32x32-bit product, rejecting the few
+        // low products that would bias the result.
+        long product = (nextLong() >>> 32) * bound;
+        if ((product & 0xFFFFFFFFL) < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while ((product & 0xFFFFFFFFL) < threshold)
+                product = (nextLong() >>> 32) * bound;
+        }
+        return (int) (product >>> 32);
+    }
+
+    // One step of SplitMix64, used to spread a seed over the generator state.
+    private static long splitMix64(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
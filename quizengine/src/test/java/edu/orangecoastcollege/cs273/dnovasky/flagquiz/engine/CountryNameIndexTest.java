@@ -0,0 +1,106 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests matching typed answers with CountryNameIndex.
+ */
+public class CountryNameIndexTest {
+    private FlagCatalog catalog;
+    private CountryNameIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        String[] regions = {"Africa", "Asia", "North_America"};
+        String[][] files = {
+                {"Africa-Ivory_Coast.png", "Africa-Niger.png", "Africa-Nigeria.png"},
+                {"Asia-Hong_Kong.png", "Asia-Saudi_Arabia.png"},
+                {"North_America-St._Kitts_and_Nevis.png", "North_America-United_States.png"}};
+        catalog = FlagCatalog.fromFileNames(regions, files);
+        String[][] alternateNames = new String[catalog.getFlagCount()][];
+        alternateNames[0] = new String[] {"C\u00F4te d\u2019Ivoire"};
+        alternateNames[6] = new String[] {"USA", "United States of America"};
+        index = CountryNameIndex.build(catalog, alternateNames);
+    }
+
+    private int[] match(String typed, int max) {
+        int[] out = new int[max];
+        return Arrays.copyOf(out, index.match(typed, out));
+    }
+
+    private int id(String name) {
+        for (int id = 0; id < catalog.getFlagCount(); id++)
+            if (catalog.getName(id).equals(name))
+                return id;
+        throw new AssertionError(name);
+    }
+
+    @Test
+    public void normalize_dropsCaseAccentsAndPunctuation() throws Exception {
+        assertEquals("cote divoire", CountryNameIndex.normalize("  C\u00F4te d'Ivoire "));
+        assertEquals("st kitts", CountryNameIndex.normalize("St. KITTS"));
+        assertEquals("aeland strasse", CountryNameIndex.normalize("\u00C6land-Stra\u00DFe"));
+    }
+
+    @Test
+    public void match_findsNamesAndAlternateNamesByPrefix() throws Exception {
+        assertArrayEquals(new int[] {id("Ivory Coast")}, match("COTE D", 4));
+        assertArrayEquals(new int[] {id("Ivory Coast")}, match("ivory", 4));
+        assertArrayEquals(new int[] {id("United States")}, match("usa", 4));
+        assertArrayEquals(new int[] {id("St. Kitts and Nevis")}, match("st kit", 4));
+        assertArrayEquals(new int[0], match("  .", 4));
+        assertArrayEquals(new int[0], match("xyz", 4));
+    }
+
+    @Test
+    public void match_listsNameStartsBeforeWordStarts() throws Exception {
+        // Niger and Nigeria start with "ni", St. Kitts and Nevis has a word that does not.
+        assertArrayEquals(new int[] {id("Niger"), id("Nigeria")}, match("ni", 4));
+        assertArrayEquals(new int[] {id("Niger"), id("Nigeria"), id("St. Kitts and Nevis")},
+                match("n", 4));
+        assertArrayEquals(new int[] {id("Hong Kong")}, match("kong", 4));
+        assertArrayEquals(new int[] {id("Saudi Arabia")}, match("arab", 4));
+        // Stop words don't start keys.
+        assertArrayEquals(new int[0], match("and", 4));
+    }
+
+    @Test
+    public void match_listsEachFlagOnceAndStopsWhenOutIsFull() throws Exception {
+        // United States matches by its name and two alternate names.
+        assertArrayEquals(new int[] {id("United States")}, match("u", 4));
+        assertArrayEquals(new int[] {id("Niger")}, match("n", 1));
+    }
+
+    @Test
+    public void findExact_matchesWholeNamesOnly() throws Exception {
+        assertEquals(id("Ivory Coast"), index.findExact("cote d'ivoire"));
+        assertEquals(id("United States"), index.findExact("United States of America"));
+        assertEquals(id("Niger"), index.findExact("niger"));
+        assertEquals(-1, index.findExact("nige"));
+        assertEquals(-1, index.findExact("kong"));
+        assertEquals(-1, index.findExact(""));
+    }
+
+    @Test
+    public void match_scalesToLargeCatalogs() throws Exception {
+        String[] regions = {"Region"};
+        String[][] files = {new String[50000]};
+        for (int i = 0; i < files[0].length; i++)
+            files[0][i] = String.format("Region-Country_%05d.png", i);
+        CountryNameIndex large = CountryNameIndex.build(FlagCatalog.fromFileNames(regions, files),
+                null);
+
+        int[] out = new int[8];
+        assertEquals(8, large.match("country 1", out));
+        assertEquals(10000, out[0]);
+        assertEquals(1, large.match("country 49999", out));
+        assertEquals(49999, out[0]);
+        assertEquals(1, large.match("49999", out));
+        assertEquals(12345, large.findExact("Country 12345"));
+    }
+}
@@ -0,0 +1,124 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests drawing quiz flags with FlagSampler.
+ */
+public class FlagSamplerTest {
+    @Test
+    public void sample_drawsDistinctFlagsFromThePool() throws Exception {
+        int[] pool = {207, 208, 209, 210, 211, 212, 213, 214, 215, 216, 217, 218, 219, 220};
+        FlagSampler sampler = new FlagSampler(pool);
+        Random random = new Random(273);
+        int[] drawn = new int[10];
+
+        for (int quiz = 0; quiz < 100; quiz++) {
+            sampler.sample(10, random, drawn);
+
+            Set<Integer> distinct = new HashSet<>();
+            for (int flagId : drawn) {
+                assertTrue(flagId >= 207 && flagId <= 220);
+                distinct.add(flagId);
+            }
+            assertEquals(10, distinct.size());
+        }
+    }
+
+    @Test
+    public void sample_canDrawTheWholePool() throws Exception {
+        FlagSampler sampler = new FlagSampler(new int[] {3, 1, 4, 5, 9});
+        int[] drawn = new int[5];
+
+        sampler.sample(5, new Random(1), drawn);
+
+        Set<Integer> distinct = new HashSet<>();
+        for (int flagId : drawn)
+            distinct.add(flagId);
+        assertEquals(5, distinct.size());
+    }
+
+    @Test
+    public void pickDistractors_neverPicksTheCorrectAnswer() throws Exception {
+        int[] pool = {0, 1, 2, 3, 4, 5, 6, 7};
+        FlagSampler sampler = new FlagSampler(pool);
+        Random random = new Random(273);
+        int[] distractors = new int[7];
+
+        for (int question = 0; question < 100; question++) {
+            int correct = question % pool.length;
+            sampler.pickDistractors(correct, 7, random, distractors);
+
+            Set<Integer> distinct = new HashSet<>();
+            for (int flagId : distractors) {
+                assertNotEquals(correct, flagId);
+                distinct.add(flagId);
+            }
+            assertEquals(7, distinct.size());
+        }
+    }
+
+    @Test
+    public void pickDistractors_isRepeatableWithTheSameSeed() throws Exception {
+        int[] pool = new int[223];
+        for (int i = 0; i < pool.length; i++)
+            pool[i] = i;
+        FlagSampler first = new FlagSampler(pool);
+        FlagSampler second = new FlagSampler(pool);
+        Random firstRandom = new Random(42);
+        Random secondRandom = new Random(42);
+        int[] firstDrawn = new int[10];
+        int[] secondDrawn = new int[10];
+
+        first.sample(10, firstRandom, firstDrawn);
+        second.sample(10, secondRandom, secondDrawn);
+        assertArrayEquals(firstDrawn, secondDrawn);
+
+        int[] firstDistractors = new int[7];
+        int[] secondDistractors = new int[7];
+        for (int question = 0; question < 10; question++) {
+            first.pickDistractors(firstDrawn[question], 7, firstRandom, firstDistractors);
+            second.pickDistractors(secondDrawn[question], 7, secondRandom, secondDistractors);
+            assertArrayEquals(firstDistractors, secondDistractors);
+        }
+    }
+
+    @Test
+    public void addAndRemove_changeOnlyTheGivenFlags() throws Exception {
+        FlagSampler sampler = new FlagSampler(10);
+        for (int flagId = 0; flagId < 10; flagId++)
+            sampler.add(flagId);
+        sampler.remove(3);
+        sampler.remove(7);
+        sampler.remove(7);
+        sampler.add(0);
+        assertEquals(8, sampler.getPoolSize());
+        assertFalse(sampler.contains(3));
+        assertTrue(sampler.contains(9));
+
+        int[] drawn = new int[8];
+        sampler.sample(8, new Random(273), drawn);
+        Set<Integer> distinct = new HashSet<>();
+        for (int flagId : drawn) {
+            assertTrue(flagId != 3 && flagId != 7);
+            distinct.add(flagId);
+        }
+        assertEquals(8, distinct.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pickDistractors_failsWhenTheAnswerIsNotInThePool() throws Exception {
+        new FlagSampler(new int[] {1, 2, 3}).pickDistractors(4, 1, new Random(1), new int[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sample_failsWhenThePoolIsTooSmall() throws Exception {
+        new FlagSampler(new int[] {1, 2, 3}).sample(4, new Random(1), new int[4]);
+    }
+}
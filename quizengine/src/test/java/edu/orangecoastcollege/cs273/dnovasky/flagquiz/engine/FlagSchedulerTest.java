@@ -0,0 +1,76 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests weighted drawing with FlagScheduler.
+ */
+public class FlagSchedulerTest {
+    @Test
+    public void next_drawsInProportionToTheWeights() throws Exception {
+        int[] weights = {1, 2, 3, 16, 0, 100, 1000};
+        FlagScheduler scheduler = new FlagScheduler(weights.length);
+        for (int id = 0; id < weights.length; id++)
+            scheduler.setWeight(id, weights[id]);
+        assertEquals(6, scheduler.getFlagCount());
+
+        int draws = 1122000;
+        int[] counts = new int[weights.length];
+        XoroshiroRandom random = new XoroshiroRandom(273);
+        for (int i = 0; i < draws; i++)
+            ++counts[scheduler.next(random)];
+
+        // Each flag is drawn weight / 1122 of the time, within 5%.
+        for (int id = 0; id < weights.length; id++)
+            assertEquals(draws * weights[id] / 1122.0, counts[id],
+                    draws * weights[id] / 1122.0 * 0.05);
+    }
+
+    @Test
+    public void setWeight_movesFlagsBetweenBuckets() throws Exception {
+        FlagScheduler scheduler = new FlagScheduler(3);
+        scheduler.setWeight(0, 5);
+        scheduler.setWeight(1, 5);
+        scheduler.setWeight(2, 5);
+        scheduler.setWeight(1, 0);
+        scheduler.setWeight(0, 64);
+        scheduler.setWeight(0, 1);
+
+        assertEquals(2, scheduler.getFlagCount());
+        XoroshiroRandom random = new XoroshiroRandom(1);
+        for (int i = 0; i < 1000; i++)
+            assertNotEquals(1, scheduler.next(random));
+    }
+
+    @Test
+    public void sample_drawsDistinctFlagsAndKeepsTheWeights() throws Exception {
+        FlagScheduler scheduler = new FlagScheduler(100);
+        for (int id = 0; id < 100; id++)
+            scheduler.setWeight(id, 1 + id % 16);
+        int[] drawn = new int[10];
+        XoroshiroRandom random = new XoroshiroRandom(2);
+
+        for (int quiz = 0; quiz < 100; quiz++) {
+            scheduler.sample(10, random, drawn);
+            Set<Integer> distinct = new HashSet<>();
+            for (int flagId : drawn)
+                distinct.add(flagId);
+            assertEquals(10, distinct.size());
+        }
+        for (int id = 0; id < 100; id++)
+            assertEquals(1 + id % 16, scheduler.getWeight(id));
+        assertEquals(100, scheduler.getFlagCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sample_failsWithTooFewWeightedFlags() throws Exception {
+        FlagScheduler scheduler = new FlagScheduler(5);
+        scheduler.setWeight(3, 1);
+        scheduler.sample(2, new XoroshiroRandom(3), new int[2]);
+    }
+}
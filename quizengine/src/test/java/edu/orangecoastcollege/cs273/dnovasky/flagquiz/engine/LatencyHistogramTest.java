@@ -0,0 +1,64 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the bucketing and percentiles of LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void bucketOf_keepsEveryValueWithinItsBucket() throws Exception {
+        Random random = new Random(273);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+        assertEquals(Long.MAX_VALUE,
+                LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void getValueAtPercentile_isWithinTheBucketError() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++)
+            histogram.record(value);
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        assertInRange(5000, histogram.getValueAtPercentile(50));
+        assertInRange(9900, histogram.getValueAtPercentile(99));
+        assertEquals(10000, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void add_mergesCounts() throws Exception {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 90; i++)
+            fast.record(100);
+        for (int i = 0; i < 10; i++)
+            slow.record(100000);
+
+        fast.add(slow);
+        assertEquals(100, fast.getCount());
+        assertInRange(100, fast.getValueAtPercentile(90));
+        assertEquals(100000, fast.getValueAtPercentile(91));
+
+        fast.reset();
+        assertEquals(0, fast.getCount());
+        assertEquals(0, fast.getValueAtPercentile(50));
+    }
+
+    // Percentiles may overstate a value by up to one bucket (12.5%) but never understate it.
+    private static void assertInRange(long expected, long actual) {
+        assertTrue(actual + " < " + expected, actual >= expected);
+        assertTrue(actual + " > " + expected + " + 12.5%", actual <= expected * 1.125);
+    }
+}
@@ -0,0 +1,297 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests running quizzes with QuizEngine over a small catalog.
+ */
+public class QuizEngineTest {
+    private FlagCatalog catalog;
+
+    @Before
+    public void setUp() throws Exception {
+        String[] regions = {"Europe", "Oceania", "South_America"};
+        String[][] files = new String[3][];
+        files[0] = new String[20];
+        for (int i = 0; i < files[0].length; i++)
+            files[0][i] = "Europe-Country_" + i + ".png";
+        files[1] = new String[] {"Oceania-Fiji.png", "Oceania-Samoa.png", "Oceania-Tonga.png"};
+        files[2] = new String[12];
+        for (int i = 0; i < files[2].length; i++)
+            files[2][i] = "South_America-Country_" + i + ".png";
+        catalog = FlagCatalog.fromFileNames(regions, files);
+    }
+
+    @Test
+    public void reset_drawsDistinctFlagsFromTheEnabledRegions() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(1));
+        engine.setRegions(Collections.singleton("South_America"));
+        engine.reset();
+
+        Set<Integer> asked = new HashSet<>();
+        while (engine.hasNextQuestion()) {
+            engine.nextQuestion();
+            int flagId = engine.getCorrectFlagId();
+            assertTrue(catalog.getFileName(flagId).startsWith("South_America-"));
+            assertTrue(asked.add(flagId));
+        }
+        assertEquals(QuizEngine.DEFAULT_QUIZ_LENGTH, asked.size());
+    }
+
+    @Test
+    public void nextQuestion_offersTheCorrectAnswerExactlyOnce() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(2));
+        engine.setChoiceCount(8);
+        engine.reset();
+
+        while (engine.hasNextQuestion()) {
+            engine.nextQuestion();
+            Set<Integer> choices = new HashSet<>();
+            int correct = 0;
+            for (int choice = 0; choice < engine.getChoiceCount(); choice++) {
+                choices.add(engine.getChoiceFlagId(choice));
+                if (engine.getChoiceFlagId(choice) == engine.getCorrectFlagId())
+                    ++correct;
+            }
+            assertEquals(8, choices.size());
+            assertEquals(1, correct);
+        }
+    }
+
+    @Test
+    public void guess_keepsTheScore() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(3));
+        engine.reset();
+
+        while (engine.hasNextQuestion()) {
+            engine.nextQuestion();
+            // Guess every wrong answer first, then the right one.
+            int correctChoice = -1;
+            for (int choice = 0; choice < engine.getChoiceCount(); choice++) {
+                if (engine.getChoiceFlagId(choice) == engine.getCorrectFlagId())
+                    correctChoice = choice;
+                else
+                    assertFalse(engine.guess(choice));
+            }
+            assertFalse(engine.isQuizComplete());
+            assertTrue(engine.guess(correctChoice));
+        }
+
+        assertTrue(engine.isQuizComplete());
+        assertEquals(QuizEngine.DEFAULT_QUIZ_LENGTH, engine.getCorrectAnswers());
+        assertEquals(QuizEngine.DEFAULT_QUIZ_LENGTH * QuizEngine.DEFAULT_CHOICE_COUNT,
+                engine.getTotalGuesses());
+    }
+
+    @Test
+    public void reset_shortensTheQuizToASmallPool() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(4));
+        engine.setChoiceCount(2);
+        assertEquals(3, engine.setRegions(Arrays.asList("Oceania", "Atlantis")));
+        engine.reset();
+
+        assertEquals(3, engine.getFlagsInQuiz());
+    }
+
+    @Test
+    public void sameSeed_replaysTheSameQuiz() throws Exception {
+        QuizEngine first = new QuizEngine(catalog, new XoroshiroRandom(273));
+        QuizEngine second = new QuizEngine(catalog, new XoroshiroRandom(273));
+        first.reset();
+        second.reset();
+
+        while (first.hasNextQuestion()) {
+            first.nextQuestion();
+            second.nextQuestion();
+            for (int choice = 0; choice < first.getChoiceCount(); choice++)
+                assertEquals(first.getChoiceFlagId(choice), second.getChoiceFlagId(choice));
+        }
+    }
+
+    @Test
+    public void setRegions_appliesOnlyTheChangedRegions() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(6));
+        assertEquals(35, engine.getPoolSize());
+
+        assertEquals(15, engine.setRegions(Arrays.asList("Oceania", "South_America")));
+        assertFalse(engine.isRegionEnabled(catalog.indexOfRegion("Europe")));
+        assertEquals(23, engine.setRegions(Arrays.asList("Europe", "Oceania")));
+        engine.setQuizLength(23);
+        engine.reset();
+
+        while (engine.hasNextQuestion()) {
+            engine.nextQuestion();
+            assertFalse(catalog.getFileName(engine.getCorrectFlagId())
+                    .startsWith("South_America-"));
+        }
+    }
+
+    @Test
+    public void restoreState_bringsBackTheCurrentQuestion() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(7));
+        engine.setChoiceCount(6);
+        engine.reset();
+        engine.nextQuestion();
+        engine.nextQuestion();
+        int wrongChoice = (engine.getCorrectChoice() + 1) % engine.getChoiceCount();
+        engine.guess(wrongChoice);
+        byte[] state = engine.saveState();
+        assertEquals(1 + 6 + 2 * 10 + 1 + 2 * 6 + 1 + 8, state.length);
+
+        QuizEngine restored = new QuizEngine(catalog, new XoroshiroRandom(8));
+        assertTrue(restored.restoreState(state));
+        assertEquals(2, restored.getQuestionNumber());
+        assertEquals(engine.getCorrectFlagId(), restored.getCorrectFlagId());
+        assertEquals(6, restored.getChoiceCount());
+        for (int choice = 0; choice < 6; choice++) {
+            assertEquals(engine.getChoiceFlagId(choice), restored.getChoiceFlagId(choice));
+            assertEquals(choice == wrongChoice, restored.isChoiceGuessed(choice));
+        }
+        assertEquals(1, restored.getTotalGuesses());
+        for (int ahead = 1; ahead <= 8; ahead++)
+            assertEquals(engine.getUpcomingFlagId(ahead), restored.getUpcomingFlagId(ahead));
+
+        assertTrue(restored.guess(restored.getCorrectChoice()));
+        assertTrue(restored.isQuestionAnswered());
+        restored.nextQuestion();
+    }
+
+    @Test
+    public void restoreState_rejectsFlagsOutsideTheEnabledRegions() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(9));
+        engine.setRegions(Collections.singleton("Europe"));
+        engine.reset();
+        engine.nextQuestion();
+
+        QuizEngine restored = new QuizEngine(catalog, new XoroshiroRandom(10));
+        restored.setRegions(Collections.singleton("South_America"));
+        assertFalse(restored.restoreState(engine.saveState()));
+        assertFalse(restored.restoreState(Arrays.copyOf(engine.saveState(), 12)));
+        assertEquals(-1, restored.getCorrectFlagId());
+    }
+
+    @Test
+    public void adaptiveQuizzes_favourMissedFlags() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(11));
+        engine.setAdaptive(true);
+        engine.setQuizLength(1);
+        engine.setRegions(Collections.singleton("Europe"));
+        for (int id = 0; id < 20; id++)
+            engine.setFlagLevel(id, QuizEngine.MAX_LEVEL);
+
+        // Miss flag 3 on the first guess: it drops to level 0, 16 times the others' weight.
+        engine.setFlagLevel(3, 2);
+        engine.reset();
+        engine.nextQuestion();
+        while (engine.getCorrectFlagId() != 3) {
+            engine.reset();
+            engine.nextQuestion();
+        }
+        engine.guess((engine.getCorrectChoice() + 1) % engine.getChoiceCount());
+        assertEquals(0, engine.getFlagLevel(3));
+
+        int drawn = 0;
+        for (int quiz = 0; quiz < 1000; quiz++) {
+            engine.reset();
+            engine.nextQuestion();
+            if (engine.getCorrectFlagId() == 3)
+                ++drawn;
+        }
+        // Expected 16 / (16 + 19) of the quizzes.
+        assertTrue(drawn + " quizzes", drawn > 400 && drawn < 520);
+    }
+
+    @Test
+    public void hardMode_drawsWrongAnswersFromTheEnabledLookAlikes() throws Exception {
+        // Each European flag looks like the next two, Fiji (20) and South America's first (23).
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x464C474B);
+        out.writeShort(1);
+        out.writeShort(catalog.getFlagCount());
+        out.writeByte(4);
+        for (int id = 0; id < catalog.getFlagCount(); id++) {
+            out.writeChar(id < 20 ? (id + 1) % 20 : (id + 1) % catalog.getFlagCount());
+            out.writeChar(id < 20 ? (id + 2) % 20 : (id + 2) % catalog.getFlagCount());
+            out.writeChar(20);
+            out.writeChar(23);
+        }
+        FlagNeighbors neighbors =
+                FlagNeighbors.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(12));
+        engine.setNeighbors(neighbors);
+        engine.setHardMode(true);
+        engine.setQuizLength(1);
+        for (int quiz = 0; quiz < 50; quiz++) {
+            engine.reset();
+            engine.nextQuestion();
+            int flagId = engine.getCorrectFlagId();
+            if (flagId >= 20)
+                continue;
+            for (int choice = 0; choice < engine.getChoiceCount(); choice++) {
+                int choiceId = engine.getChoiceFlagId(choice);
+                assertTrue(choiceId == flagId || choiceId == (flagId + 1) % 20 ||
+                        choiceId == (flagId + 2) % 20 || choiceId == 20 || choiceId == 23);
+            }
+        }
+
+        // With Oceania disabled, the three enabled look-alikes are topped up from the pool.
+        engine.setRegions(Arrays.asList("Europe", "South_America"));
+        engine.setChoiceCount(6);
+        for (int quiz = 0; quiz < 50; quiz++) {
+            engine.reset();
+            engine.nextQuestion();
+            int flagId = engine.getCorrectFlagId();
+            Set<Integer> choices = new HashSet<>();
+            for (int choice = 0; choice < engine.getChoiceCount(); choice++) {
+                assertNotEquals(20, engine.getChoiceFlagId(choice));
+                choices.add(engine.getChoiceFlagId(choice));
+            }
+            assertEquals(6, choices.size());
+            if (flagId < 20)
+                assertTrue(choices.containsAll(
+                        Arrays.asList(flagId, (flagId + 1) % 20, (flagId + 2) % 20, 23)));
+        }
+    }
+
+    @Test
+    public void guessFlag_countsTypedAnswersOutsideTheChoices() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(6));
+        engine.setAdaptive(true);
+        engine.reset();
+        engine.nextQuestion();
+
+        // A flag that isn't offered is a wrong guess and marks the flag as missed.
+        int other = -1;
+        for (int id = 0; id < catalog.getFlagCount() && other < 0; id++) {
+            other = id;
+            for (int choice = 0; choice < engine.getChoiceCount(); choice++)
+                if (engine.getChoiceFlagId(choice) == id)
+                    other = -1;
+        }
+        assertFalse(engine.guessFlag(other));
+        assertEquals(0, engine.getFlagLevel(engine.getCorrectFlagId()));
+        assertTrue(engine.guessFlag(engine.getCorrectFlagId()));
+        assertEquals(2, engine.getTotalGuesses());
+        assertEquals(1, engine.getCorrectAnswers());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void reset_failsWithoutFlags() throws Exception {
+        QuizEngine engine = new QuizEngine(catalog, new XoroshiroRandom(5));
+        engine.setRegions(Collections.<String>emptyList());
+        engine.reset();
+    }
+}
@@ -0,0 +1,167 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests recording guesses in QuizHistory and reopening it from disk.
+ */
+public class QuizHistoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FlagCatalog catalog;
+
+    @Before
+    public void setUp() throws Exception {
+        String[] regions = {"Europe", "Oceania"};
+        String[][] files = {
+                {"Europe-France.png", "Europe-Italy.png", "Europe-Spain.png"},
+                {"Oceania-Fiji.png", "Oceania-Samoa.png"}};
+        catalog = FlagCatalog.fromFileNames(regions, files);
+    }
+
+    @Test
+    public void queries_countBufferedGuesses() throws Exception {
+        QuizHistory history = QuizHistory.open(folder.getRoot(), catalog);
+        history.recordGuess(0, false, 900);
+        history.recordGuess(0, true, 1500);
+        history.recordGuess(3, true, 500);
+
+        assertEquals(2, history.getGuessCount(0));
+        assertEquals(0.5, history.getAccuracy(0), 0);
+        assertEquals(1500, history.getMeanResponseMillis(0));
+        assertEquals(0.5, history.getRegionAccuracy(0), 0);
+        assertEquals(1.0, history.getRegionAccuracy(1), 0);
+        history.close();
+    }
+
+    @Test
+    public void open_restoresFlushedAndCompactedGuesses() throws Exception {
+        QuizHistory history = QuizHistory.open(folder.getRoot(), catalog);
+        int guesses = QuizHistory.COMPACT_EVENTS + 100;
+        for (int i = 0; i < guesses; i++)
+            history.recordGuess(i % 5, i % 5 == 4 || i % 3 == 0, 1000);
+        history.close();
+
+        QuizHistory reopened = QuizHistory.open(folder.getRoot(), catalog);
+        int total = 0;
+        for (int id = 0; id < 5; id++) {
+            assertEquals(history.getGuessCount(id), reopened.getGuessCount(id));
+            assertEquals(history.getAccuracy(id), reopened.getAccuracy(id), 0);
+            total += reopened.getGuessCount(id);
+        }
+        assertEquals(guesses, total);
+
+        // Compaction left one small log behind the aggregate file.
+        File[] logs = folder.getRoot().listFiles();
+        assertEquals(2, logs.length);
+        reopened.close();
+    }
+
+    @Test
+    public void getMostMissedFlags_sortsByMisses() throws Exception {
+        QuizHistory history = QuizHistory.open(folder.getRoot(), catalog);
+        int[] misses = {2, 0, 5, 1, 3};
+        for (int id = 0; id < misses.length; id++) {
+            for (int miss = 0; miss < misses[id]; miss++)
+                history.recordGuess(id, false, 0);
+            history.recordGuess(id, true, 0);
+        }
+
+        int[] top = new int[3];
+        assertEquals(3, history.getMostMissedFlags(top));
+        assertArrayEquals(new int[] {2, 4, 0}, top);
+
+        int[] all = new int[10];
+        assertEquals(4, history.getMostMissedFlags(all));
+        history.close();
+    }
+
+    @Test
+    public void open_discardsTheHistoryOfAnotherCatalog() throws Exception {
+        QuizHistory history = QuizHistory.open(folder.getRoot(), catalog);
+        for (int i = 0; i < QuizHistory.COMPACT_EVENTS; i++)
+            history.recordGuess(1, true, 100);
+        history.close();
+
+        FlagCatalog smaller = FlagCatalog.fromFileNames(new String[] {"Europe"},
+                new String[][] {{"Europe-France.png", "Europe-Italy.png"}});
+        QuizHistory reopened = QuizHistory.open(folder.getRoot(), smaller);
+        assertEquals(0, reopened.getGuessCount(1));
+        reopened.recordGuess(1, true, 100);
+        reopened.close();
+
+        assertEquals(1, QuizHistory.open(folder.getRoot(), smaller).getGuessCount(1));
+    }
+
+    @Test
+    public void open_discardsTheHistoryOfARenamedCatalogOfTheSameSize() throws Exception {
+        QuizHistory history = QuizHistory.open(folder.getRoot(), catalog);
+        history.recordGuess(2, true, 100);
+        history.close();
+
+        FlagCatalog renamed = FlagCatalog.fromFileNames(new String[] {"Europe", "Oceania"},
+                new String[][] {
+                        {"Europe-France.png", "Europe-Italy.png", "Europe-Sweden.png"},
+                        {"Oceania-Fiji.png", "Oceania-Samoa.png"}});
+        assertEquals(0, QuizHistory.open(folder.getRoot(), renamed).getGuessCount(2));
+    }
+
+    @Test
+    public void open_cutsOffATornRecordBeforeAppending() throws Exception {
+        for (int tail = 1; tail < 4; tail++) {
+            File directory = folder.newFolder("torn" + tail);
+            QuizHistory history = QuizHistory.open(directory, catalog);
+            history.recordGuess(0, true, 100);
+            history.recordGuess(1, false, 0);
+            history.close();
+
+            // A crash in the middle of appending a record leaves part of it behind.
+            try (FileOutputStream out = new FileOutputStream(
+                    new File(directory, "history-0.log"), true)) {
+                out.write(new byte[tail]);
+            }
+
+            QuizHistory reopened = QuizHistory.open(directory, catalog);
+            reopened.recordGuess(3, true, 200);
+            reopened.recordGuess(4, false, 0);
+            reopened.close();
+
+            QuizHistory reloaded = QuizHistory.open(directory, catalog);
+            int[] expected = {1, 1, 0, 1, 1};
+            for (int id = 0; id < expected.length; id++)
+                assertEquals(expected[id], reloaded.getGuessCount(id));
+            assertEquals(1.0, reloaded.getAccuracy(3), 0);
+            assertEquals(200, reloaded.getMeanResponseMillis(3));
+            assertEquals(16, new File(directory, "history-0.log").length());
+            reloaded.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void open_rejectsFlagIdsTooLargeForARecord() throws Exception {
+        QuizHistory.open(folder.getRoot(), FlagCatalog.synthetic(QuizHistory.MAX_FLAGS + 1));
+    }
+
+    @Test
+    public void open_recordsTheLargestFlagId() throws Exception {
+        FlagCatalog largest = FlagCatalog.synthetic(QuizHistory.MAX_FLAGS);
+        int lastId = QuizHistory.MAX_FLAGS - 1;
+        QuizHistory history = QuizHistory.open(folder.getRoot(), largest);
+        history.recordGuess(lastId, false, 0);
+        history.close();
+
+        QuizHistory reopened = QuizHistory.open(folder.getRoot(), largest);
+        assertEquals(1, reopened.getGuessCount(lastId));
+        assertEquals(0, reopened.getAccuracy(lastId), 0);
+        reopened.close();
+    }
+}
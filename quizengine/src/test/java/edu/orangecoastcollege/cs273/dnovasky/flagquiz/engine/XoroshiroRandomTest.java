@@ -0,0 +1,36 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the quiz's random number generator.
+ */
+public class XoroshiroRandomTest {
+    @Test
+    public void sameSeed_producesTheSameNumbers() throws Exception {
+        XoroshiroRandom first = new XoroshiroRandom(273);
+        XoroshiroRandom second = new XoroshiroRandom(273);
+
+        for (int i = 0; i < 1000; i++)
+            assertEquals(first.nextInt(223), second.nextInt(223));
+    }
+
+    @Test
+    public void nextInt_staysInBoundsAndCoversEveryValue() throws Exception {
+        XoroshiroRandom random = new XoroshiroRandom(42);
+        int[] counts = new int[16];
+
+        for (int i = 0; i < 16000; i++)
+            ++counts[random.nextInt(counts.length)];
+
+        for (int count : counts)
+            assertTrue("count " + count, count > 800 && count < 1200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nextInt_rejectsANonPositiveBound() throws Exception {
+        new XoroshiroRandom(1).nextInt(0);
+    }
+}
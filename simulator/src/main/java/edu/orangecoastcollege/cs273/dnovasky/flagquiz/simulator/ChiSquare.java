@@ -0,0 +1,104 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.simulator;
+
+/**
+ * ChiSquare runs Pearson's chi-square test of whether counts are uniform, e.g. how often
+ * each flag was asked. A p-value below 0.001 means the counts are very unlikely to come from
+ * a uniform draw.
+ *
+ * The p-value is the upper regularized gamma function Q(df / 2, chi-square / 2), computed
+ * with a series below its mean and a continued fraction above it (as in Numerical Recipes).
+ */
+public final class ChiSquare {
+    private static final double EPSILON = 1e-15; // Relative precision of the p-value.
+    private static final double TINY = 1e-300; // Keeps the continued fraction from dividing by 0.
+    private static final int MAX_ITERATIONS = 1000000; // Enough for a million flags.
+
+    private ChiSquare() {
+    }
+
+    /**
+     * @param counts the observed counts of each category
+     * @return the chi-square statistic of the counts against equal expected counts, or 0 if
+     *         every count is 0
+     */
+    public static double uniformStatistic(long[] counts) {
+        long total = 0;
+        for (long count : counts)
+            total += count;
+        if (total == 0)
+            return 0;
+
+        double expected = (double) total / counts.length;
+        double statistic = 0;
+        for (long count : counts) {
+            double difference = count - expected;
+            statistic += difference * difference / expected;
+        }
+        return statistic;
+    }
+
+    /**
+     * @param statistic the chi-square statistic
+     * @param degreesOfFreedom the degrees of freedom, the number of categories - 1
+     * @return the probability of a statistic at least this large if the counts are uniform
+     */
+    public static double pValue(double statistic, int degreesOfFreedom) {
+        if (degreesOfFreedom < 1)
+            throw new IllegalArgumentException("A test needs at least one degree of freedom");
+        return upperRegularizedGamma(degreesOfFreedom / 2.0, statistic / 2.0);
+    }
+
+    // Q(a, x) = 1 - P(a, x).
+    private static double upperRegularizedGamma(double a, double x) {
+        if (x <= 0)
+            return 1;
+        double logPrefactor = -x + a * Math.log(x) - logGamma(a);
+
+        if (x < a + 1) {
+            // Series of P(a, x).
+            double term = 1 / a;
+            double sum = term;
+            for (int n = 1; n < MAX_ITERATIONS && Math.abs(term) > Math.abs(sum) * EPSILON; n++) {
+                term *= x / (a + n);
+                sum += term;
+            }
+            return Math.max(0, 1 - sum * Math.exp(logPrefactor));
+        }
+
+        // Continued fraction of Q(a, x) by Lentz's method.
+        double b = x + 1 - a;
+        double c = 1 / TINY;
+        double d = 1 / b;
+        double fraction = d;
+        for (int i = 1; i < MAX_ITERATIONS; i++) {
+            double an = -i * (i - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < TINY)
+                d = TINY;
+            c = b + an / c;
+            if (Math.abs(c) < TINY)
+                c = TINY;
+            d = 1 / d;
+            double delta = d * c;
+            fraction *= delta;
+            if (Math.abs(delta - 1) < EPSILON)
+                break;
+        }
+        return Math.exp(logPrefactor) * fraction;
+    }
+
+    // ln(Gamma(x)) for x > 0 by the Lanczos approximation.
+    private static double logGamma(double x) {
+        final double[] coefficients = {76.18009172947146, -86.50532032941677,
+                24.01409824083091, -1.231739572450155, 0.1208650973866179e-2,
+                -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients)
+            series += coefficient / ++y;
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
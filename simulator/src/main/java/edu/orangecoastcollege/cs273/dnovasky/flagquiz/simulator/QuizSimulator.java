@@ -0,0 +1,268 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.simulator;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.QuizEngine;
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.XoroshiroRandom;
+
+/**
+ * QuizSimulator plays quiz sessions headlessly the way QuizActivityFragment runs them: each
+ * session resets the quiz, then for every question moves to the next flag and has a bot guess
+ * until it finds the correct answer. The bot picks the correct answer with a configurable
+ * accuracy and otherwise a wrong answer it hasn't tried yet.
+ *
+ * Sessions are split into fixed batches of BATCH_SIZE that a ForkJoinPool runs on every
+ * core. Each batch has its own QuizEngine and XoroshiroRandom seeded from the simulation's
+ * seed and the batch's first session, so no state is shared between workers, and a
+ * simulation's counts depend only on its settings and seed, not on the number of threads.
+ */
+public class QuizSimulator {
+    // Sessions played by one fork-join task with one engine.
+    static final int BATCH_SIZE = 4096;
+
+    private final FlagCatalog catalog; // The flags the sessions are drawn from.
+    private int choiceCount = QuizEngine.DEFAULT_CHOICE_COUNT; // Answer choices per question.
+    private int quizLength = QuizEngine.DEFAULT_QUIZ_LENGTH; // Flags per session.
+    private double accuracy = 0.7; // Probability that a guess of the bot is correct.
+    private boolean adaptive; // Whether the engines draw adaptive quizzes.
+    private long seed = 273; // Seed of the whole simulation.
+
+    /**
+     * @param catalog the flags to draw the sessions from; every region is enabled
+     */
+    public QuizSimulator(FlagCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    public void setChoiceCount(int choiceCount) {
+        this.choiceCount = choiceCount;
+    }
+
+    public void setQuizLength(int quizLength) {
+        this.quizLength = quizLength;
+    }
+
+    /**
+     * @param accuracy the probability, from 0 to 1, that each guess of the bot is correct
+     */
+    public void setAccuracy(double accuracy) {
+        if (accuracy < 0 || accuracy > 1)
+            throw new IllegalArgumentException("Accuracy " + accuracy + " is out of range");
+        this.accuracy = accuracy;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Plays sessions on the pool's threads and waits for them.
+     * @param sessions the number of quiz sessions
+     * @param pool the pool to run the sessions on
+     * @return the merged counts of every session
+     */
+    public SimulationResult run(long sessions, ForkJoinPool pool) {
+        return pool.invoke(new SessionTask(0, sessions));
+    }
+
+    // Plays the sessions [start, end) with one engine and random number generator.
+    private SimulationResult playBatch(long start, long end) {
+        Random random = new XoroshiroRandom(seed ^ (start * 0x9E3779B97F4A7C15L));
+        QuizEngine engine = new QuizEngine(catalog, random);
+        engine.setChoiceCount(choiceCount);
+        engine.setQuizLength(quizLength);
+        engine.setAdaptive(adaptive);
+
+        SimulationResult result = new SimulationResult(catalog.getFlagCount(), choiceCount);
+        for (long session = start; session < end; session++) {
+            engine.reset();
+            while (engine.hasNextQuestion()) {
+                engine.nextQuestion();
+                countQuestion(engine, result);
+                result.guesses += guessUntilCorrect(engine, random, result);
+            }
+            ++result.sessions;
+        }
+        return result;
+    }
+
+    private void countQuestion(QuizEngine engine, SimulationResult result) {
+        ++result.questions;
+        ++result.askedCounts[engine.getCorrectFlagId()];
+        ++result.correctChoiceCounts[engine.getCorrectChoice()];
+        for (int choice = 0; choice < choiceCount; choice++)
+            if (choice != engine.getCorrectChoice())
+                ++result.distractorCounts[engine.getChoiceFlagId(choice)];
+    }
+
+    // Returns the number of guesses the bot took.
+    private int guessUntilCorrect(QuizEngine engine, Random random, SimulationResult result) {
+        int wrongGuesses = 0;
+        while (true) {
+            int wrongLeft = choiceCount - 1 - wrongGuesses;
+            if (wrongLeft == 0 || random.nextDouble() < accuracy) {
+                engine.guess(engine.getCorrectChoice());
+                if (wrongGuesses == 0)
+                    ++result.firstGuessesCorrect;
+                return wrongGuesses + 1;
+            }
+
+            // Pick one of the wrong answers that haven't been tried.
+            int pick = random.nextInt(wrongLeft);
+            for (int choice = 0; choice < choiceCount; choice++) {
+                if (choice == engine.getCorrectChoice() || engine.isChoiceGuessed(choice))
+                    continue;
+                if (pick-- == 0) {
+                    engine.guess(choice);
+                    break;
+                }
+            }
+            ++wrongGuesses;
+        }
+    }
+
+    /**
+     * Splits its range of sessions in half until it is at most one batch, so batches always
+     * start at multiples of BATCH_SIZE whatever the number of threads.
+     */
+    private class SessionTask extends RecursiveTask<SimulationResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final long start; // First session of the range.
+        private final long end; // Session after the range.
+
+        SessionTask(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected SimulationResult compute() {
+            long batches = (end - start + BATCH_SIZE - 1) / BATCH_SIZE;
+            if (batches <= 1)
+                return playBatch(start, end);
+
+            long middle = start + batches / 2 * BATCH_SIZE;
+            SessionTask second = new SessionTask(middle, end);
+            second.fork();
+            SimulationResult result = new SessionTask(start, middle).compute();
+            result.merge(second.join());
+            return result;
+        }
+    }
+
+    /**
+     * Runs a simulation from the command line and prints its report.
+     * @param args the options; --help lists them
+     */
+    public static void main(String[] args) throws IOException {
+        long sessions = 1000000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int flagCount = 223;
+        String catalogFile = null;
+        QuizSimulator simulator = null;
+        int choiceCount = QuizEngine.DEFAULT_CHOICE_COUNT;
+        int quizLength = QuizEngine.DEFAULT_QUIZ_LENGTH;
+        double accuracy = 0.7;
+        boolean adaptive = false;
+        long seed = 273;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--help")) {
+                    printUsage();
+                    return;
+                }
+                else if (option.equals("--adaptive")) {
+                    adaptive = true;
+                    continue;
+                }
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException(option + " needs a value");
+
+                String value = args[++i];
+                if (option.equals("--sessions"))
+                    sessions = Long.parseLong(value);
+                else if (option.equals("--threads"))
+                    threads = Integer.parseInt(value);
+                else if (option.equals("--flags"))
+                    flagCount = Integer.parseInt(value);
+                else if (option.equals("--catalog"))
+                    catalogFile = value;
+                else if (option.equals("--choices"))
+                    choiceCount = Integer.parseInt(value);
+                else if (option.equals("--length"))
+                    quizLength = Integer.parseInt(value);
+                else if (option.equals("--accuracy"))
+                    accuracy = Double.parseDouble(value);
+                else if (option.equals("--seed"))
+                    seed = Long.parseLong(value);
+                else
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+
+            FlagCatalog catalog;
+            if (catalogFile != null) {
+                try (InputStream in = new BufferedInputStream(new FileInputStream(catalogFile))) {
+                    catalog = FlagCatalog.read(in);
+                }
+            }
+            else
+                catalog = FlagCatalog.synthetic(flagCount);
+            if (choiceCount > catalog.getFlagCount())
+                throw new IllegalArgumentException(choiceCount + " choices need at least as " +
+                        "many flags, the catalog has " + catalog.getFlagCount());
+
+            simulator = new QuizSimulator(catalog);
+            simulator.setChoiceCount(choiceCount);
+            simulator.setQuizLength(quizLength);
+            simulator.setAccuracy(accuracy);
+            simulator.setAdaptive(adaptive);
+            simulator.setSeed(seed);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        // Warm up the JIT so the measured run isn't dominated by the interpreter.
+        simulator.run(Math.min(sessions, 20 * BATCH_SIZE), pool);
+
+        long start = System.nanoTime();
+        SimulationResult result = simulator.run(sessions, pool);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        result.report(System.out, simulator.catalog, elapsed, threads);
+        if (adaptive)
+            System.out.println("Adaptive quizzes favour missed flags, so the flags asked " +
+                    "are not expected to be uniform.");
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: QuizSimulator [options]\n" +
+                "  --sessions N   quiz sessions to play (default 1000000)\n" +
+                "  --threads N    worker threads (default: one per core)\n" +
+                "  --flags N      size of a synthetic catalog (default 223)\n" +
+                "  --catalog FILE read the catalog from a flags.idx file instead\n" +
+                "  --choices N    answer choices per question (default 4)\n" +
+                "  --length N     flags per quiz (default 10)\n" +
+                "  --accuracy P   probability that a guess is correct (default 0.7)\n" +
+                "  --adaptive     draw adaptive quizzes\n" +
+                "  --seed N       seed of the simulation (default 273)");
+    }
+}
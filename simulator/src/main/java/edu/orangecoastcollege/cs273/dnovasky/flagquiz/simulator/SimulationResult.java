@@ -0,0 +1,139 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.simulator;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalogSource;
+
+/**
+ * SimulationResult counts what the simulated quiz sessions drew: how often each flag was
+ * asked and offered as a wrong answer, and where the correct answer was placed. Each worker
+ * of QuizSimulator fills its own result, and the results are merged when the workers join.
+ */
+public class SimulationResult {
+    long sessions; // Quiz sessions played to the end.
+    long questions; // Questions asked.
+    long guesses; // Guesses made, including wrong ones.
+    long firstGuessesCorrect; // Questions answered correctly on the first guess.
+    final long[] askedCounts; // Times each flag id was the correct answer.
+    final long[] distractorCounts; // Times each flag id was offered as a wrong answer.
+    final long[] correctChoiceCounts; // Times the correct answer was at each position.
+
+    /**
+     * @param flagCount the number of flag ids
+     * @param choiceCount the number of answer choices per question
+     */
+    public SimulationResult(int flagCount, int choiceCount) {
+        askedCounts = new long[flagCount];
+        distractorCounts = new long[flagCount];
+        correctChoiceCounts = new long[choiceCount];
+    }
+
+    /**
+     * Adds another worker's counts to these.
+     * @param other the counts of the same flags and choice count
+     */
+    public void merge(SimulationResult other) {
+        sessions += other.sessions;
+        questions += other.questions;
+        guesses += other.guesses;
+        firstGuessesCorrect += other.firstGuessesCorrect;
+        for (int id = 0; id < askedCounts.length; id++) {
+            askedCounts[id] += other.askedCounts[id];
+            distractorCounts[id] += other.distractorCounts[id];
+        }
+        for (int choice = 0; choice < correctChoiceCounts.length; choice++)
+            correctChoiceCounts[choice] += other.correctChoiceCounts[choice];
+    }
+
+    public long getSessions() {
+        return sessions;
+    }
+
+    public long getQuestions() {
+        return questions;
+    }
+
+    public long getGuesses() {
+        return guesses;
+    }
+
+    /**
+     * @param flagId the flag id
+     * @return the number of questions that asked the flag
+     */
+    public long getAskedCount(int flagId) {
+        return askedCounts[flagId];
+    }
+
+    /**
+     * @param flagId the flag id
+     * @return the number of questions that offered the flag as a wrong answer
+     */
+    public long getDistractorCount(int flagId) {
+        return distractorCounts[flagId];
+    }
+
+    /**
+     * @param choice the position of an answer choice
+     * @return the number of questions whose correct answer was at the position
+     */
+    public long getCorrectChoiceCount(int choice) {
+        return correctChoiceCounts[choice];
+    }
+
+    /**
+     * Prints the throughput, the guessing statistics and a uniformity check of the flags
+     * asked, the wrong answers and the correct answer's position.
+     * @param out the stream to print to
+     * @param catalog the catalog the sessions were drawn from, for the flags' names
+     * @param elapsedNanos the wall-clock time the sessions took
+     * @param threads the number of worker threads
+     */
+    public void report(PrintStream out, FlagCatalogSource catalog, long elapsedNanos,
+                       int threads) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf(Locale.US, "%,d sessions in %.2f s on %d thread%s: %,.0f sessions/s, " +
+                "%,.0f questions/s%n", sessions, seconds, threads, threads == 1 ? "" : "s",
+                sessions / seconds, questions / seconds);
+        out.printf(Locale.US, "%,d questions, %.3f guesses per question, " +
+                "%.1f%% right on the first guess%n", questions, (double) guesses / questions,
+                100.0 * firstGuessesCorrect / questions);
+
+        reportCounts(out, catalog, "Flags asked", askedCounts);
+        reportCounts(out, catalog, "Wrong answers", distractorCounts);
+
+        out.print("Correct answer position:");
+        for (long count : correctChoiceCounts)
+            out.printf(Locale.US, " %.4f", (double) count / questions);
+        out.println();
+        printUniformity(out, correctChoiceCounts);
+    }
+
+    private static void reportCounts(PrintStream out, FlagCatalogSource catalog, String title,
+                                     long[] counts) {
+        long total = 0;
+        int min = 0;
+        int max = 0;
+        for (int id = 0; id < counts.length; id++) {
+            total += counts[id];
+            if (counts[id] < counts[min])
+                min = id;
+            if (counts[id] > counts[max])
+                max = id;
+        }
+        out.printf(Locale.US, "%s: %,d over %d flags, mean %.1f, min %d (%s), max %d (%s)%n",
+                title, total, counts.length, (double) total / counts.length, counts[min],
+                catalog.getName(min), counts[max], catalog.getName(max));
+        printUniformity(out, counts);
+    }
+
+    private static void printUniformity(PrintStream out, long[] counts) {
+        if (counts.length < 2)
+            return;
+        double statistic = ChiSquare.uniformStatistic(counts);
+        double pValue = ChiSquare.pValue(statistic, counts.length - 1);
+        out.printf(Locale.US, "  chi-square %.1f, %d degrees of freedom, p = %.4f%s%n",
+                statistic, counts.length - 1, pValue, pValue < 0.001 ? " (NOT UNIFORM)" : "");
+    }
+}
@@ -0,0 +1,33 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.simulator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ChiSquare against tabulated critical values.
+ */
+public class ChiSquareTest {
+    @Test
+    public void pValue_matchesCriticalValues() throws Exception {
+        assertEquals(0.05, ChiSquare.pValue(3.841, 1), 1e-4);
+        assertEquals(0.05, ChiSquare.pValue(18.307, 10), 1e-4);
+        assertEquals(0.001, ChiSquare.pValue(29.588, 10), 1e-5);
+        assertEquals(0.95, ChiSquare.pValue(3.940, 10), 1e-4);
+        assertEquals(1.0, ChiSquare.pValue(0, 5), 0);
+    }
+
+    @Test
+    public void pValue_isAboutHalfAtTheMeanOfManyDegreesOfFreedom() throws Exception {
+        // The distribution approaches a normal one with mean df and variance 2 df.
+        assertEquals(0.5, ChiSquare.pValue(222, 222), 0.02);
+        assertEquals(0.5, ChiSquare.pValue(999999, 999999), 0.01);
+    }
+
+    @Test
+    public void uniformStatistic_sumsTheSquaredDeviations() throws Exception {
+        assertEquals(0, ChiSquare.uniformStatistic(new long[] {5, 5, 5, 5}), 0);
+        // Expected 10 each: (4 + 4) / 10.
+        assertEquals(0.8, ChiSquare.uniformStatistic(new long[] {12, 8, 10}), 1e-12);
+    }
+}
@@ -0,0 +1,53 @@
+package edu.orangecoastcollege.cs273.dnovasky.flagquiz.simulator;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import edu.orangecoastcollege.cs273.dnovasky.flagquiz.engine.FlagCatalog;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests simulating quiz sessions with QuizSimulator.
+ */
+public class QuizSimulatorTest {
+    @Test
+    public void run_countsDoNotDependOnTheThreads() throws Exception {
+        QuizSimulator simulator = new QuizSimulator(FlagCatalog.synthetic(50));
+        long sessions = 3 * QuizSimulator.BATCH_SIZE + 100;
+
+        SimulationResult single = simulator.run(sessions, new ForkJoinPool(1));
+        SimulationResult parallel = simulator.run(sessions, new ForkJoinPool(4));
+        assertEquals(sessions, parallel.getSessions());
+        assertEquals(sessions * 10, parallel.getQuestions());
+        assertEquals(single.getGuesses(), parallel.getGuesses());
+        for (int id = 0; id < 50; id++) {
+            assertEquals(single.getAskedCount(id), parallel.getAskedCount(id));
+            assertEquals(single.getDistractorCount(id), parallel.getDistractorCount(id));
+        }
+    }
+
+    @Test
+    public void run_drawsFlagsAndWrongAnswersUniformly() throws Exception {
+        QuizSimulator simulator = new QuizSimulator(FlagCatalog.synthetic(223));
+        simulator.setChoiceCount(6);
+        simulator.setAccuracy(1);
+        SimulationResult result = simulator.run(20000, new ForkJoinPool(2));
+
+        long[] asked = new long[223];
+        long[] distractors = new long[223];
+        long[] positions = new long[6];
+        for (int id = 0; id < 223; id++) {
+            asked[id] = result.getAskedCount(id);
+            distractors[id] = result.getDistractorCount(id);
+        }
+        for (int choice = 0; choice < 6; choice++)
+            positions[choice] = result.getCorrectChoiceCount(choice);
+
+        assertEquals(result.getQuestions(), result.getGuesses()); // Always right at once.
+        assertTrue(ChiSquare.pValue(ChiSquare.uniformStatistic(asked), 222) > 0.001);
+        assertTrue(ChiSquare.pValue(ChiSquare.uniformStatistic(distractors), 222) > 0.001);
+        assertTrue(ChiSquare.pValue(ChiSquare.uniformStatistic(positions), 5) > 0.001);
+    }
+}